@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+
+import java.net.InetAddress;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import io.vavr.control.Try;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+
+@Value
+public class NodeId implements ValueObject<String>
+{
+	@NonNull
+	String value;
+
+	private static final int MAX_LENGTH = 64;
+	private static final int SUFFIX_LENGTH = 8;
+	private static final String DEFAULT_NODE_ID = createDefaultNodeId();
+
+	public static NodeId of(String nodeId)
+	{
+		return new NodeId(StringUtils.isNotBlank(nodeId) ? nodeId : DEFAULT_NODE_ID);
+	}
+
+	private static String createDefaultNodeId()
+	{
+		val hostName = Try.of(() -> InetAddress.getLocalHost().getHostName())
+				.filter(StringUtils::isNotBlank)
+				.getOrElse("localhost");
+		return StringUtils.left(hostName,MAX_LENGTH - SUFFIX_LENGTH - 1) + "-" + RandomStringUtils.randomAlphanumeric(SUFFIX_LENGTH).toLowerCase();
+	}
+
+	public NodeId(@NonNull String nodeId)
+	{
+		value = Try.success(nodeId)
+				.andThen(v -> inclusiveBetween(1,MAX_LENGTH,v.length()))
+				.get();
+	}
+}
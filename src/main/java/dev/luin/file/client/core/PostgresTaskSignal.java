@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PostgresTaskSignal extends TaskSignal implements AutoCloseable
+{
+	private static final int LISTEN_TIMEOUT = 1000;
+	private static final int RECONNECT_DELAY = 5000;
+
+	@NonNull
+	DataSource dataSource;
+	@NonNull
+	String jdbcUrl;
+	@NonNull
+	String username;
+	@NonNull
+	String password;
+	@NonNull
+	String channel;
+	@NonNull
+	NodeId nodeId;
+	AtomicBoolean running = new AtomicBoolean(true);
+	Thread listener;
+
+	public PostgresTaskSignal(@NonNull DataSource dataSource, @NonNull String jdbcUrl, @NonNull String username, @NonNull String password, @NonNull String channel, @NonNull NodeId nodeId)
+	{
+		this.dataSource = dataSource;
+		this.jdbcUrl = jdbcUrl;
+		this.username = username;
+		this.password = password;
+		this.channel = channel;
+		this.nodeId = nodeId;
+		this.listener = new Thread(this::listen,channel + "Listener");
+		this.listener.setDaemon(true);
+		this.listener.start();
+	}
+
+	@Override
+	protected void notifyListeners(Instant scheduleTime)
+	{
+		super.notifyListeners(scheduleTime);
+		Try.run(() -> notifyNodes(scheduleTime)).onFailure(e -> log.error("",e));
+	}
+
+	private void notifyNodes(Instant scheduleTime) throws SQLException
+	{
+		try (val connection = dataSource.getConnection();
+				val statement = connection.prepareStatement("select pg_notify(?,?)"))
+		{
+			statement.setString(1,channel);
+			statement.setString(2,nodeId.getValue() + " " + scheduleTime.toEpochMilli());
+			statement.execute();
+			if (!connection.getAutoCommit())
+				connection.commit();
+		}
+	}
+
+	private void listen()
+	{
+		while (running.get())
+		{
+			try (val connection = DriverManager.getConnection(jdbcUrl,username,password))
+			{
+				try (val statement = connection.createStatement())
+				{
+					statement.execute("LISTEN " + channel);
+				}
+				val pgConnection = connection.unwrap(PGConnection.class);
+				while (running.get())
+					for (val notification : Option.of(pgConnection.getNotifications(LISTEN_TIMEOUT)).getOrElse(new PGNotification[0]))
+						receive(notification.getParameter());
+			}
+			catch (SQLException e)
+			{
+				log.error("",e);
+				Try.run(() -> Thread.sleep(RECONNECT_DELAY));
+			}
+		}
+	}
+
+	private void receive(String payload)
+	{
+		val separator = payload.lastIndexOf(' ');
+		if (separator > 0 && !payload.substring(0,separator).equals(nodeId.getValue()))
+			Try.of(() -> Instant.ofEpochMilli(Long.parseLong(payload.substring(separator + 1))))
+					.onSuccess(super::notifyListeners)
+					.onFailure(e -> log.warn("Invalid notification {} on {}",payload,channel));
+	}
+
+	@Override
+	public void close()
+	{
+		running.set(false);
+		listener.interrupt();
+	}
+}
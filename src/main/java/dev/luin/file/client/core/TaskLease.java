@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AccessLevel;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@ToString
+public class TaskLease
+{
+	AtomicLong lastProgress = new AtomicLong(System.currentTimeMillis());
+	AtomicBoolean started = new AtomicBoolean();
+	AtomicBoolean lost = new AtomicBoolean();
+	AtomicLong bytesTransferred;
+
+	public TaskLease()
+	{
+		this(0);
+	}
+
+	public TaskLease(long bytesTransferred)
+	{
+		this.bytesTransferred = new AtomicLong(bytesTransferred);
+	}
+
+	public boolean start()
+	{
+		lastProgress.set(System.currentTimeMillis());
+		started.set(true);
+		return !lost.get();
+	}
+
+	public void progress()
+	{
+		if (lost.get())
+			throw new IllegalStateException("Lease lost");
+		lastProgress.set(System.currentTimeMillis());
+	}
+
+	public void progress(long bytes)
+	{
+		progress();
+		if (bytes > 0)
+			bytesTransferred.addAndGet(bytes);
+	}
+
+	public void setBytesTransferred(long bytes)
+	{
+		bytesTransferred.set(bytes);
+	}
+
+	public long getBytesTransferred()
+	{
+		return bytesTransferred.get();
+	}
+
+	public boolean isActive(long idleTimeout)
+	{
+		return !lost.get() && (!started.get() || lastProgress.get() > System.currentTimeMillis() - idleTimeout);
+	}
+
+	public void lose()
+	{
+		lost.set(true);
+	}
+
+	public boolean isLost()
+	{
+		return lost.get();
+	}
+}
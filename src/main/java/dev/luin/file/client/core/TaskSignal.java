@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TaskSignal
+{
+	Set<Consumer<Instant>> listeners = new CopyOnWriteArraySet<>();
+
+	public void subscribe(@NonNull Consumer<Instant> listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void signal(@NonNull Instant scheduleTime)
+	{
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					notifyListeners(scheduleTime);
+				}
+			});
+		else
+			notifyListeners(scheduleTime);
+	}
+
+	protected void notifyListeners(Instant scheduleTime)
+	{
+		listeners.forEach(l -> l.accept(scheduleTime));
+	}
+}
@@ -45,6 +45,7 @@ public class Client
 	@NonNull
 	String baseDir = "";
 	int filenameLength = 32;
+	int shardLevels = 0;
 	@NonNull
 	SSLSocketFactory sslSocketFactory;
 
@@ -69,7 +70,7 @@ public class Client
 		var connection = createConnection(url);
 		connection.setRequestMethod("HEAD");
 		val contentLength = connection.getContentLengthLong();
-		val file = RandomFile.create(baseDir,filenameLength).map(f -> f.getPath().toFile()).get();
+		val file = RandomFile.create(baseDir,filenameLength,shardLevels).map(f -> f.getPath().toFile()).get();
 		long fileLength = 0;
 		while (fileLength < contentLength)
 		{
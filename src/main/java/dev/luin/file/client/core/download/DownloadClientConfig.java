@@ -19,6 +19,9 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
 
 import com.querydsl.sql.SQLQueryFactory;
 
@@ -29,6 +32,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import dev.luin.file.client.core.NodeId;
+import dev.luin.file.client.core.PostgresTaskSignal;
+import dev.luin.file.client.core.TaskSignal;
+import dev.luin.file.client.core.datasource.DataSourceConfig.Location;
 import dev.luin.file.client.core.file.FileSystem;
 import dev.luin.file.client.core.security.KeyStore;
 import dev.luin.file.client.core.security.TrustStore;
@@ -42,12 +49,42 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class DownloadClientConfig
 {
+	@Value("${node.id}")
+	String nodeId;
+	@Value("${jdbc.url}")
+	String jdbcUrl;
+	@Value("${jdbc.username}")
+	String username;
+	@Value("${jdbc.password}")
+	String password;
+	@Value("${taskSignal.notify.enabled}")
+	boolean notifyEnabled;
 	@Value("${https.enabledProtocols}")
 	String[] enabledProtocols;
 	@Value("${https.enabledCipherSuites}")
 	String[] enabledCipherSuites;
 	@Value("${https.verifyHostnames}")
 	boolean verifyHostnames;
+	@Value("${downloadTaskHandler.maxConcurrent}")
+	int maxConcurrent;
+	@Value("${downloadTaskHandler.batchSize}")
+	int batchSize;
+	@Value("${downloadTask.lease.duration}")
+	long leaseDuration;
+	@Value("${downloadTaskHandler.heartbeat}")
+	long heartbeatDelay;
+	@Value("${downloadTaskHandler.reaper.delay}")
+	long reaperDelay;
+	@Value("${downloadTaskHandler.segments}")
+	int segments;
+	@Value("${downloadTaskHandler.minSegmentSize}")
+	long minSegmentSize;
+	@Value("${downloadClient.maxConnections}")
+	int maxConnections;
+	@Value("${downloadClient.maxConnectionsPerHost}")
+	int maxConnectionsPerHost;
+	@Value("${downloadClient.idleTimeout}")
+	long idleTimeout;
 	@Value("${downloadTask.retry.maxAttempts}")
 	int maxRetries;
 	@Value("${downloadTask.retry.interval}")
@@ -57,10 +94,22 @@ public class DownloadClientConfig
 
 	@Bean
 	public DownloadTaskHandler downloadTaskHandler(
+			@Autowired FileSystem fs,
+			@Autowired HttpClient httpClient,
+			@Autowired DownloadTaskManager downloadTaskManager,
+			@Autowired @Qualifier("downloadTaskSignal") TaskSignal taskSignal)
+	{
+		val result = new DownloadTaskHandler(fs,httpClient,downloadTaskManager,maxRetries,maxConcurrent,batchSize,leaseDuration,heartbeatDelay,reaperDelay);
+		taskSignal.subscribe(result::wakeUp);
+		return result;
+	}
+
+	@Bean
+	public HttpClient downloadHttpClient(
 			@Autowired @Qualifier("clientKeyStore") KeyStore clientKeyStore,
 			@Autowired TrustStore trustStore,
 			@Autowired FileSystem fs,
-			@Autowired DownloadTaskManager downloadTaskManager) throws UnrecoverableKeyException, KeyManagementException, NoSuchAlgorithmException, KeyStoreException
+			@Autowired DownloadSegmentDAO downloadSegmentDAO) throws UnrecoverableKeyException, KeyManagementException, NoSuchAlgorithmException, KeyStoreException
 	{
 		val sslFactoryManager = SSLFactoryManager.builder()
 				.keyStore(clientKeyStore)
@@ -69,18 +118,42 @@ public class DownloadClientConfig
 				.enabledCipherSuites(enabledCipherSuites)
 				.verifyHostnames(verifyHostnames)
 				.build();
-		return new DownloadTaskHandler(fs,HttpClient.createClient(sslFactoryManager.getSslSocketFactory(),fs),downloadTaskManager,maxRetries);
+		return HttpClient.builder()
+				.sslSocketFactory(sslFactoryManager.getSslSocketFactory())
+				.hostnameVerifier(sslFactoryManager.getHostnameVerifier())
+				.fs(fs)
+				.downloadSegmentDAO(downloadSegmentDAO)
+				.segments(segments)
+				.minSegmentSize(minSegmentSize)
+				.maxConnections(maxConnections)
+				.maxConnectionsPerHost(maxConnectionsPerHost)
+				.idleTimeout(idleTimeout)
+				.build();
 	}
 
 	@Bean
-	public DownloadTaskManager downloadTaskManager(@Autowired DownloadTaskDAO downloadTaskDAO)
+	public DownloadTaskManager downloadTaskManager(@Autowired DownloadTaskDAO downloadTaskDAO, @Autowired DownloadSegmentDAO downloadSegmentDAO, @Autowired @Qualifier("downloadTaskSignal") TaskSignal taskSignal)
+	{
+		return new DownloadTaskManager(downloadTaskDAO,downloadSegmentDAO,taskSignal,retryInterval,retryMaxMultiplier);
+	}
+
+	@Bean
+	public DownloadSegmentDAO downloadSegmentDAO(@Autowired SQLQueryFactory queryFactory)
+	{
+		return new DownloadSegmentDAOImpl(queryFactory);
+	}
+
+	@Bean("downloadTaskSignal")
+	public TaskSignal downloadTaskSignal(@Autowired DataSource dataSource)
 	{
-		return new DownloadTaskManager(downloadTaskDAO,retryInterval,retryMaxMultiplier);
+		return notifyEnabled && jdbcUrl.startsWith(Location.POSTGRES.getJdbcUrl())
+				? new PostgresTaskSignal(dataSource,jdbcUrl,username,password,"download_task",NodeId.of(nodeId))
+				: new TaskSignal();
 	}
 
 	@Bean
 	public DownloadTaskDAO downloadTaskDAO(@Autowired SQLQueryFactory queryFactory)
 	{
-		return new DownloadTaskDAOImpl(queryFactory);
+		return new DownloadTaskDAOImpl(queryFactory,NodeId.of(nodeId),Duration.ofMillis(leaseDuration));
 	}
 }
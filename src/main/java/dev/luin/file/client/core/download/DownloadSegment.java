@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.download;
+
+import dev.luin.file.client.core.file.FileId;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@AllArgsConstructor
+public class DownloadSegment
+{
+	@NonNull
+	FileId fileId;
+	@NonNull
+	Long firstByte;
+	@NonNull
+	Long lastByte;
+	@With
+	@NonNull
+	Long nextByte;
+
+	static Seq<DownloadSegment> of(@NonNull FileId fileId, long length, int segments)
+	{
+		long size = (length + segments - 1) / segments;
+		return List.range(0,segments)
+				.map(i -> i * size)
+				.filter(first -> first < length)
+				.map(first -> new DownloadSegment(fileId,first,Math.min(first + size,length) - 1,first));
+	}
+
+	public boolean isCompleted()
+	{
+		return nextByte > lastByte;
+	}
+
+	public long getRemaining()
+	{
+		return Math.max(0,lastByte - nextByte + 1);
+	}
+}
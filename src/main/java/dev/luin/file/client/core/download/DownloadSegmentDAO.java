@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.download;
+
+import dev.luin.file.client.core.file.FileId;
+import io.vavr.collection.Seq;
+
+public interface DownloadSegmentDAO
+{
+	Seq<DownloadSegment> getSegments(FileId fileId);
+	Seq<DownloadSegment> insert(Seq<DownloadSegment> segments);
+	long update(DownloadSegment segment);
+	long delete(FileId fileId);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.download;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.sql.SQLQueryFactory;
+
+import dev.luin.file.client.core.file.FileId;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Transactional(transactionManager = "dataSourceTransactionManager")
+class DownloadSegmentDAOImpl implements DownloadSegmentDAO
+{
+	@NonNull
+	SQLQueryFactory queryFactory;
+	QDownloadSegment table = QDownloadSegment.downloadSegment;
+	Expression<?>[] downloadSegmentColumns = {table.fileId,table.firstByte,table.lastByte,table.nextByte};
+	ConstructorExpression<DownloadSegment> downloadSegmentProjection = Projections.constructor(DownloadSegment.class,downloadSegmentColumns);
+
+	@Override
+	public Seq<DownloadSegment> getSegments(FileId fileId)
+	{
+		return List.ofAll(queryFactory.select(downloadSegmentProjection)
+				.from(table)
+				.where(table.fileId.eq(fileId))
+				.orderBy(table.firstByte.asc())
+				.fetch());
+	}
+
+	@Override
+	public Seq<DownloadSegment> insert(Seq<DownloadSegment> segments)
+	{
+		val insert = queryFactory.insert(table);
+		segments.forEach(s -> insert
+				.set(table.fileId,s.getFileId())
+				.set(table.firstByte,s.getFirstByte())
+				.set(table.lastByte,s.getLastByte())
+				.set(table.nextByte,s.getNextByte())
+				.addBatch());
+		if (!insert.isEmpty())
+			insert.execute();
+		return segments;
+	}
+
+	@Override
+	public long update(DownloadSegment segment)
+	{
+		return queryFactory.update(table)
+				.set(table.nextByte,segment.getNextByte())
+				.where(table.fileId.eq(segment.getFileId())
+						.and(table.firstByte.eq(segment.getFirstByte())))
+				.execute();
+	}
+
+	@Override
+	public long delete(FileId fileId)
+	{
+		return queryFactory.delete(table)
+				.where(table.fileId.eq(fileId))
+				.execute();
+	}
+}
@@ -31,7 +31,7 @@ public class DownloadStatus implements ValueObject<DownloadStatus.Status>
 	@XmlType(name = "DownloadStatusStatus")
 	public enum Status
 	{
-		CREATED, SUCCEEDED, FAILED;
+		CREATED, SUCCEEDED, FAILED, RUNNING;
 	}
 
 	@NonNull
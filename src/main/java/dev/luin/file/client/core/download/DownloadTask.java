@@ -17,6 +17,7 @@ package dev.luin.file.client.core.download;
 
 import java.time.Instant;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.Retries;
 import dev.luin.file.client.core.ScheduleTime;
 import dev.luin.file.client.core.download.DownloadStatus.Status;
@@ -48,15 +49,20 @@ public class DownloadTask
 	ScheduleTime scheduleTime;
 	@With
 	Retries retries;
+	@With
+	NodeId nodeId;
+	@With
+	@NonNull
+	Long bytesTransferred;
 
 	static DownloadTask of(FileId fileId, Url url, Instant startDate, Instant endDate)
 	{
 		val now = Instant.now();
 		val scheduleTime = new ScheduleTime(startDate != null ? startDate : now);
-		return new DownloadTask(fileId,url,new TimeFrame(startDate,endDate),new Timestamp(now),new DownloadStatus(Status.CREATED,now),scheduleTime,new Retries());
+		return new DownloadTask(fileId,url,new TimeFrame(startDate,endDate),new Timestamp(now),new DownloadStatus(Status.CREATED,now),scheduleTime,new Retries(),null,0L);
 	}
 
-	public DownloadTask(FileId fileId, @NonNull Url url, Instant startDate, Instant endDate, @NonNull Timestamp timestamp, @NonNull Status status, @NonNull Instant statusTime, @NonNull ScheduleTime scheduleTime, Retries retries)
+	public DownloadTask(FileId fileId, @NonNull Url url, Instant startDate, Instant endDate, @NonNull Timestamp timestamp, @NonNull Status status, @NonNull Instant statusTime, @NonNull ScheduleTime scheduleTime, Retries retries, NodeId nodeId, @NonNull Long bytesTransferred)
 	{
 		this.fileId = fileId;
 		this.url = url;
@@ -65,6 +71,8 @@ public class DownloadTask
 		this.status = new DownloadStatus(status,statusTime);
 		this.scheduleTime = scheduleTime;
 		this.retries = retries;
+		this.nodeId = nodeId;
+		this.bytesTransferred = bytesTransferred;
 	}
 
 }
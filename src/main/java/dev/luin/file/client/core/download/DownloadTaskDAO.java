@@ -18,16 +18,21 @@ package dev.luin.file.client.core.download;
 import dev.luin.file.client.core.download.DownloadStatus.Status;
 import dev.luin.file.client.core.file.FileId;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 
 public interface DownloadTaskDAO
 {
 	Option<DownloadTask> getTask(FileId fileId);
-	Option<DownloadTask> getNextTask();
+	Seq<DownloadTask> getNextTasks(int limit);
 	Seq<DownloadTask> getTasks();
 	Seq<DownloadTask> getTasks(List<Status> statuses);
 	DownloadTask insert(DownloadTask task);
 	long update(DownloadTask task);
+	long releaseTasks();
+	Seq<FileId> renewLeases(Seq<FileId> fileIds);
+	long updateBytesTransferred(Map<FileId,Long> bytesTransferred);
+	long releaseExpiredTasks();
 	long delete(FileId fileId);
 }
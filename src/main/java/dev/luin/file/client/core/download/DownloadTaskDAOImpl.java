@@ -15,6 +15,7 @@
  */
 package dev.luin.file.client.core.download;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import org.springframework.transaction.annotation.Transactional;
@@ -26,14 +27,18 @@ import com.querydsl.core.types.dsl.DateTimePath;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQueryFactory;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.download.DownloadStatus.Status;
 import dev.luin.file.client.core.file.FileId;
+import dev.luin.file.client.core.querydsl.SkipLocked;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -43,8 +48,12 @@ public class DownloadTaskDAOImpl implements DownloadTaskDAO
 {
 	@NonNull
 	SQLQueryFactory queryFactory;
+	@NonNull
+	NodeId nodeId;
+	@NonNull
+	Duration leaseDuration;
 	QDownloadTask table = QDownloadTask.downloadTask;
-	Expression<?>[] downloadTaskColumns = {table.fileId,table.url,table.startDate,table.endDate,table.timestamp,table.status,table.statusTime,table.scheduleTime,table.retries};
+	Expression<?>[] downloadTaskColumns = {table.fileId,table.url,table.startDate,table.endDate,table.timestamp,table.status,table.statusTime,table.scheduleTime,table.retries,table.nodeId,table.bytesTransferred};
 	ConstructorExpression<DownloadTask> downloadTaskProjection = Projections.constructor(DownloadTask.class,downloadTaskColumns);
 	DateTimePath<Instant> scheduleTime = Expressions.dateTimePath(Instant.class,"schedule_time");
 
@@ -58,14 +67,40 @@ public class DownloadTaskDAOImpl implements DownloadTaskDAO
 	}
 
 	@Override
-	public Option<DownloadTask> getNextTask()
+	public Seq<DownloadTask> getNextTasks(int limit)
 	{
-		return Option.of(queryFactory.select(downloadTaskProjection)
+		val tasks = SkipLocked.fetch(queryFactory.getConfiguration().getTemplates(),queryFactory.select(downloadTaskProjection)
 				.from(table)
 				.where(scheduleTime.before(Instant.now())
 						.and(table.status.eq(Status.CREATED)))
+				.orderBy(scheduleTime.asc()),limit);
+		return tasks.isEmpty() ? tasks : claim(tasks);
+	}
+
+	private Seq<DownloadTask> claim(Seq<DownloadTask> tasks)
+	{
+		val status = new DownloadStatus(Status.RUNNING);
+		val fileIds = tasks.map(DownloadTask::getFileId);
+		val claimed = queryFactory.update(table)
+				.set(table.status,status.getValue())
+				.set(table.statusTime,status.getTime())
+				.set(table.nodeId,nodeId)
+				.set(table.leaseTime,status.getTime().plus(leaseDuration))
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.CREATED)))
+				.execute();
+		return claimed == tasks.size() ? tasks.map(t -> t.withStatus(status).withNodeId(nodeId)) : getClaimedTasks(fileIds);
+	}
+
+	private Seq<DownloadTask> getClaimedTasks(Seq<FileId> fileIds)
+	{
+		return List.ofAll(queryFactory.select(downloadTaskProjection)
+				.from(table)
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
 				.orderBy(scheduleTime.asc())
-				.fetchFirst());
+				.fetch());
 	}
 
 	@Override
@@ -100,6 +135,7 @@ public class DownloadTaskDAOImpl implements DownloadTaskDAO
 				.set(table.statusTime,task.getStatus().getTime())
 				.set(table.scheduleTime,task.getScheduleTime())
 				.set(table.retries,task.getRetries())
+				.set(table.nodeId,task.getNodeId())
 				.execute();
 		return task;
 	}
@@ -112,7 +148,68 @@ public class DownloadTaskDAOImpl implements DownloadTaskDAO
 				.set(table.statusTime,task.getStatus().getTime())
 				.set(table.scheduleTime,task.getScheduleTime())
 				.set(table.retries,task.getRetries())
-				.where(table.fileId.eq(task.getFileId()))
+				.set(table.nodeId,task.getNodeId())
+				.set(table.bytesTransferred,task.getBytesTransferred())
+				.setNull(table.leaseTime)
+				.where(table.fileId.eq(task.getFileId())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.execute();
+	}
+
+	@Override
+	public Seq<FileId> renewLeases(Seq<FileId> fileIds)
+	{
+		val renewed = queryFactory.update(table)
+				.set(table.leaseTime,Instant.now().plus(leaseDuration))
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.execute();
+		return renewed == fileIds.size() ? fileIds : List.ofAll(queryFactory.select(table.fileId)
+				.from(table)
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.fetch());
+	}
+
+	@Override
+	public long updateBytesTransferred(Map<FileId,Long> bytesTransferred)
+	{
+		val update = queryFactory.update(table);
+		bytesTransferred.forEach((fileId,bytes) -> update
+				.set(table.bytesTransferred,bytes)
+				.where(table.fileId.eq(fileId)
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.addBatch());
+		return update.isEmpty() ? 0 : update.execute();
+	}
+
+	@Override
+	public long releaseExpiredTasks()
+	{
+		return queryFactory.update(table)
+				.set(table.status,Status.CREATED)
+				.set(table.statusTime,Instant.now())
+				.setNull(table.nodeId)
+				.setNull(table.leaseTime)
+				.where(table.status.eq(Status.RUNNING)
+						.and(table.leaseTime.before(Instant.now())))
+				.execute();
+	}
+
+	@Override
+	public long releaseTasks()
+	{
+		return queryFactory.update(table)
+				.set(table.status,Status.CREATED)
+				.set(table.statusTime,Instant.now())
+				.setNull(table.nodeId)
+				.setNull(table.leaseTime)
+				.where(table.status.eq(Status.RUNNING)
+						.and(table.nodeId.eq(nodeId)))
 				.execute();
 	}
 
@@ -16,23 +16,38 @@
 package dev.luin.file.client.core.download;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import dev.luin.file.client.core.LeaseLostException;
+import dev.luin.file.client.core.TaskLease;
+import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.file.FileSystem;
 import io.tus.java.client.ProtocolException;
 import io.tus.java.client.TusExecutor;
+import io.vavr.collection.List;
 import io.vavr.control.Try;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
 public class DownloadTaskHandler
 {
 	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -45,12 +60,14 @@ public class DownloadTaskHandler
 		HttpClient client;
 		@NonNull
 		DownloadTask task;
+		@NonNull
+		TaskLease lease;
 		
 		@Override
 		protected void makeAttempt() throws ProtocolException, IOException
 		{
 			val file = fs.findFile(task.getFileId()).getOrElseThrow(() -> new IllegalStateException("File " + task.getFileId() + " not found"));
-			client.download(file,task.getUrl());
+			client.download(file,task.getUrl(),lease);
 		}
 	}
 
@@ -61,41 +78,163 @@ public class DownloadTaskHandler
 	@NonNull
 	DownloadTaskManager downloadTaskManager;
 	int maxRetries;
+	int maxConcurrent;
+	int batchSize;
+	long leaseDuration;
+	ExecutorService executorService;
+	ScheduledThreadPoolExecutor wakeUpService;
+	Object wakeUpLock = new Object();
+	@NonFinal
+	Instant nextWakeUp;
+	@NonFinal
+	ScheduledFuture<?> wakeUp;
+	ScheduledExecutorService leaseService;
+	Map<FileId,TaskLease> runningTasks = new ConcurrentHashMap<>();
+
+	public DownloadTaskHandler(@NonNull FileSystem fs, @NonNull HttpClient client, @NonNull DownloadTaskManager downloadTaskManager, int maxRetries, int maxConcurrent, int batchSize, long leaseDuration, long heartbeatDelay, long reaperDelay)
+	{
+		this.fs = fs;
+		this.client = client;
+		this.downloadTaskManager = downloadTaskManager;
+		this.maxRetries = maxRetries;
+		this.maxConcurrent = maxConcurrent;
+		this.batchSize = batchSize;
+		this.leaseDuration = leaseDuration;
+		this.executorService = Executors.newFixedThreadPool(maxConcurrent,new CustomizableThreadFactory("downloadTask-"));
+		this.wakeUpService = new ScheduledThreadPoolExecutor(1,new CustomizableThreadFactory("downloadTaskWakeUp-"));
+		wakeUpService.setRemoveOnCancelPolicy(true);
+		this.leaseService = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("downloadTaskLease-"));
+		leaseService.scheduleWithFixedDelay(this::heartbeat,heartbeatDelay,heartbeatDelay,TimeUnit.MILLISECONDS);
+		leaseService.scheduleWithFixedDelay(this::releaseExpiredTasks,reaperDelay,reaperDelay,TimeUnit.MILLISECONDS);
+		downloadTaskManager.releaseTasks();
+	}
 
 	@Scheduled(fixedDelayString = "${downloadTaskHandler.delay}")
-	public void run()
+	public synchronized void run()
+	{
+		while (!executorService.isShutdown())
+		{
+			val limit = Math.min(batchSize,maxConcurrent - runningTasks.size());
+			if (limit <= 0)
+				break;
+			val tasks = Try.of(() -> downloadTaskManager.getNextTasks(limit))
+					.onFailure(e -> log.error("",e))
+					.getOrElse(List.empty());
+			tasks.forEach(this::submit);
+			if (tasks.size() < limit)
+				break;
+		}
+	}
+
+	public void heartbeat()
 	{
-		val task = downloadTaskManager.getNextTask();
-		task.map(t -> Try.of(() -> handle(t)).onFailure(e -> log.error("",e)));
+		val activeTasks = List.ofAll(runningTasks.entrySet())
+				.filter(e -> e.getValue().isActive(leaseDuration))
+				.map(e -> e.getKey());
+		val renewedTasks = Try.of(() -> downloadTaskManager.renewLeases(activeTasks).toSet())
+				.onFailure(e -> log.error("",e))
+				.getOrElse(activeTasks.toSet());
+		runningTasks.forEach((fileId,lease) ->
+		{
+			if (!renewedTasks.contains(fileId))
+				lease.lose();
+		});
+		Try.of(() -> downloadTaskManager.updateBytesTransferred(List.ofAll(runningTasks.entrySet())
+						.filter(e -> renewedTasks.contains(e.getKey()))
+						.toMap(e -> e.getKey(),e -> e.getValue().getBytesTransferred())))
+				.onFailure(e -> log.error("",e));
+	}
+
+	public void releaseExpiredTasks()
+	{
+		val released = Try.of(() -> downloadTaskManager.releaseExpiredTasks())
+				.onFailure(e -> log.error("",e))
+				.getOrElse(0L);
+		if (released > 0)
+			log.warn("Released {} expired tasks",released);
+	}
+
+	public void wakeUp(Instant scheduleTime)
+	{
+		synchronized (wakeUpLock)
+		{
+			if (wakeUpService.isShutdown() || (wakeUp != null && !wakeUp.isDone() && !scheduleTime.isBefore(nextWakeUp)))
+				return;
+			if (wakeUp != null)
+				wakeUp.cancel(false);
+			nextWakeUp = scheduleTime;
+			wakeUp = wakeUpService.schedule(this::run,Math.max(0,Duration.between(Instant.now(),scheduleTime).toMillis()),TimeUnit.MILLISECONDS);
+		}
 	}
 
-	private DownloadTask handle(DownloadTask task) throws IOException
+	public void shutdown()
+	{
+		wakeUpService.shutdownNow();
+		leaseService.shutdownNow();
+		executorService.shutdownNow();
+	}
+
+	private void submit(DownloadTask task)
+	{
+		val lease = new TaskLease(task.getBytesTransferred());
+		runningTasks.put(task.getFileId(),lease);
+		executorService.execute(() ->
+		{
+			if (lease.start())
+				Try.of(() -> handle(task,lease)).onFailure(e -> log.error("",e));
+			fs.discardDigests(task.getFileId());
+			runningTasks.remove(task.getFileId());
+			run();
+		});
+	}
+
+	private DownloadTask handle(DownloadTask task, TaskLease lease) throws IOException
 	{
 		log.info("Start task {}",task);
-		val executor = new DownloadTaskExecutor(fs,client,task);
-		val newTask = handleTask(executor,task);
+		val executor = new DownloadTaskExecutor(fs,client,task,lease);
+		val newTask = handleTask(executor,task,lease);
 		log.info("Finished task {}\nCreated task {}",task,newTask);
 		return newTask;
 	}
 
-	private DownloadTask handleTask(TusExecutor executor, DownloadTask task)
+	private DownloadTask handleTask(TusExecutor executor, DownloadTask task, TaskLease lease)
 	{
 		try
 		{
-			if (!executor.makeAttempts())
+			return completeTask(executor,task,lease);
+		}
+		catch (LeaseLostException e)
+		{
+			log.warn("Lease of task {} lost",task);
+			return task;
+		}
+	}
+
+	private DownloadTask completeTask(TusExecutor executor, DownloadTask task, TaskLease lease)
+	{
+		try
+		{
+			val succeeded = executor.makeAttempts();
+			val result = task.withBytesTransferred(lease.getBytesTransferred());
+			if (!succeeded)
 			{
 				if (task.getRetries().getValue() < maxRetries)
-					return downloadTaskManager.createNextTask(task);
+					return downloadTaskManager.createNextTask(result);
 				else
-					return downloadTaskManager.createFailedTask(task);
+					return downloadTaskManager.createFailedTask(result);
 			}
 			else
-				return downloadTaskManager.createSucceededTask(task);
+				return downloadTaskManager.createSucceededTask(result);
 		}
 		catch (Exception e)
 		{
+			if (lease.isLost() || e instanceof LeaseLostException)
+			{
+				log.warn("Lease of task {} lost",task);
+				return task;
+			}
 			log.error("",e);
-			return downloadTaskManager.createNextTask(task);
+			return downloadTaskManager.createNextTask(task.withBytesTransferred(lease.getBytesTransferred()));
 		}
 	}
 }
@@ -18,12 +18,15 @@ package dev.luin.file.client.core.download;
 import java.time.Duration;
 import java.time.Instant;
 
+import dev.luin.file.client.core.LeaseLostException;
 import dev.luin.file.client.core.Retries;
 import dev.luin.file.client.core.ScheduleTime;
+import dev.luin.file.client.core.TaskSignal;
 import dev.luin.file.client.core.download.DownloadStatus.Status;
 import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.file.Url;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 import lombok.AccessLevel;
@@ -38,6 +41,10 @@ public class DownloadTaskManager
 {
 	@NonNull
 	DownloadTaskDAO downloadTaskDAO;
+	@NonNull
+	DownloadSegmentDAO downloadSegmentDAO;
+	@NonNull
+	TaskSignal taskSignal;
 	int retryInterval;
 	int retryMaxMultiplier;
 
@@ -46,9 +53,29 @@ public class DownloadTaskManager
 		return downloadTaskDAO.getTask(fileId);
 	}
 
-	public Option<DownloadTask> getNextTask()
+	public Seq<DownloadTask> getNextTasks(int limit)
+	{
+		return downloadTaskDAO.getNextTasks(limit);
+	}
+
+	public long releaseTasks()
+	{
+		return downloadTaskDAO.releaseTasks();
+	}
+
+	public Seq<FileId> renewLeases(Seq<FileId> fileIds)
+	{
+		return fileIds.isEmpty() ? fileIds : downloadTaskDAO.renewLeases(fileIds);
+	}
+
+	public long updateBytesTransferred(Map<FileId,Long> bytesTransferred)
+	{
+		return bytesTransferred.isEmpty() ? 0 : downloadTaskDAO.updateBytesTransferred(bytesTransferred);
+	}
+
+	public long releaseExpiredTasks()
 	{
-		return downloadTaskDAO.getNextTask();
+		return downloadTaskDAO.releaseExpiredTasks();
 	}
 
 	public Seq<DownloadTask> getTasks(List<Status> statuses)
@@ -64,7 +91,9 @@ public class DownloadTaskManager
 	public DownloadTask createTask(FileId fileId, Url url, Instant startDate, Instant endDate)
 	{
 		val task = DownloadTask.of(fileId,url,startDate,endDate);
-		return downloadTaskDAO.insert(task);
+		val result = downloadTaskDAO.insert(task);
+		taskSignal.signal(result.getScheduleTime().getValue());
+		return result;
 	}
 
 	public DownloadTask createNextTask(DownloadTask task)
@@ -73,10 +102,14 @@ public class DownloadTaskManager
 		Option<ScheduleTime> nextScheduleTime = getNextScheduleTime(task,retries);
 		val result = nextScheduleTime
 				.map(t -> task
+					.withStatus(new DownloadStatus(Status.CREATED))
 					.withScheduleTime(t)
-					.withRetries(retries))
-					.getOrElse(task.withStatus(new DownloadStatus(Status.FAILED)));
-		downloadTaskDAO.update(result);
+					.withRetries(retries)
+					.withNodeId(null))
+					.getOrElse(task.withStatus(new DownloadStatus(Status.FAILED)).withNodeId(null));
+		update(result);
+		if (result.getStatus().getValue() == Status.CREATED)
+			taskSignal.signal(result.getScheduleTime().getValue());
 		return result;
 	}
 
@@ -88,20 +121,27 @@ public class DownloadTaskManager
 
 	public DownloadTask createSucceededTask(DownloadTask task)
 	{
-		val result = task.withStatus(new DownloadStatus(Status.SUCCEEDED));
-		downloadTaskDAO.update(result);
+		val result = task.withStatus(new DownloadStatus(Status.SUCCEEDED)).withNodeId(null);
+		update(result);
 		return result;
 	}
 
 	public DownloadTask createFailedTask(DownloadTask task)
 	{
-		val result = task.withStatus(new DownloadStatus(Status.FAILED));
-		downloadTaskDAO.update(result);
+		val result = task.withStatus(new DownloadStatus(Status.FAILED)).withNodeId(null);
+		update(result);
 		return result;
 	}
 
+	private void update(DownloadTask task)
+	{
+		if (downloadTaskDAO.update(task) == 0)
+			throw new LeaseLostException("Lease of task " + task.getFileId() + " lost");
+	}
+
 	public boolean deleteTask(FileId fileId)
 	{
+		downloadSegmentDAO.delete(fileId);
 		return downloadTaskDAO.delete(fileId) > 0;
 	}
 }
@@ -16,67 +16,179 @@
 package dev.luin.file.client.core.download;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import dev.luin.file.client.core.TaskLease;
 import dev.luin.file.client.core.file.ContentType;
 import dev.luin.file.client.core.file.FSFile;
 import dev.luin.file.client.core.file.FileSystem;
 import dev.luin.file.client.core.file.Filename;
 import dev.luin.file.client.core.file.Length;
 import dev.luin.file.client.core.file.Url;
+import io.vavr.collection.Seq;
 import io.vavr.control.Option;
+import io.vavr.control.Try;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.NonNull;
+import lombok.Value;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor(staticName = "createClient")
-public class HttpClient
+public class HttpClient implements AutoCloseable
 {
-	@NonNull
-	SSLSocketFactory sslSocketFactory;
+	@Value
+	public static class Statistics
+	{
+		long requests;
+		long connections;
+		long handshakes;
+
+		public long getReusedConnections()
+		{
+			return requests - connections;
+		}
+	}
+
 	@NonNull
 	FileSystem fs;
+	@NonNull
+	DownloadSegmentDAO downloadSegmentDAO;
+	int segments;
+	long minSegmentSize;
+	CloseableHttpClient httpClient;
+	AtomicLong requests = new AtomicLong();
+	AtomicLong connections = new AtomicLong();
+	AtomicLong handshakes = new AtomicLong();
+
+	@Builder
+	public HttpClient(
+			@NonNull SSLSocketFactory sslSocketFactory,
+			@NonNull HostnameVerifier hostnameVerifier,
+			@NonNull FileSystem fs,
+			@NonNull DownloadSegmentDAO downloadSegmentDAO,
+			int segments,
+			long minSegmentSize,
+			int maxConnections,
+			int maxConnectionsPerHost,
+			long idleTimeout)
+	{
+		this.fs = fs;
+		this.downloadSegmentDAO = downloadSegmentDAO;
+		this.segments = segments;
+		this.minSegmentSize = minSegmentSize;
+		val connectionManager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http",createPlainSocketFactory())
+				.register("https",createSSLSocketFactory(sslSocketFactory,hostnameVerifier))
+				.build());
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		this.httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.disableContentCompression()
+				.evictExpiredConnections()
+				.evictIdleConnections(idleTimeout,TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	private ConnectionSocketFactory createPlainSocketFactory()
+	{
+		return new PlainConnectionSocketFactory()
+		{
+			@Override
+			public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException
+			{
+				connections.incrementAndGet();
+				return super.connectSocket(connectTimeout,socket,host,remoteAddress,localAddress,context);
+			}
+		};
+	}
 
-	public void download(final FSFile file, final Url url) throws IOException
+	private ConnectionSocketFactory createSSLSocketFactory(SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier)
+	{
+		return new SSLConnectionSocketFactory(sslSocketFactory,hostnameVerifier)
+		{
+			@Override
+			public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException
+			{
+				connections.incrementAndGet();
+				return super.connectSocket(connectTimeout,socket,host,remoteAddress,localAddress,context);
+			}
+
+			@Override
+			protected void prepareSocket(SSLSocket socket) throws IOException
+			{
+				socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
+			}
+		};
+	}
+
+	public Statistics getStatistics()
+	{
+		return new Statistics(requests.get(),connections.get(),handshakes.get());
+	}
+
+	public void download(final FSFile file, final Url url, final TaskLease lease) throws IOException
 	{
 		log.info("Downloading {}",file);
-		val connection = createHttpConnection(url);
-		connection.setRequestMethod(DownloadMethod.FILE_INFO.getHttpMethod());
-		boolean isResponseSuccessful = connection.getResponseCode() / 100 == 2;
-		if (isResponseSuccessful)
+		try (val response = execute(new HttpHead(url.getValue())))
 		{
-			val f = downloadFile(getFile(file,connection), url);
-			if (f.isCompleted())
-				log.info("Downloaded {}",f);
+			boolean isResponseSuccessful = response.getStatusLine().getStatusCode() / 100 == 2;
+			if (isResponseSuccessful)
+			{
+				val f = isSegmented(file,response) ? downloadSegments(getFile(file,response),url,lease) : downloadFile(getFile(file,response),url,lease);
+				if (f.isCompleted())
+					log.info("Downloaded {}",f);
+				log.debug("{}",getStatistics());
+			}
+			else
+				throw new IllegalStateException("Unexpected response: " + response.getStatusLine().getStatusCode());
 		}
-		else
-			throw new IllegalStateException("Unexpected response: " + connection.getResponseCode());
 	}
 
-	private HttpURLConnection createHttpConnection(final Url url)
+	private CloseableHttpResponse execute(final HttpUriRequest request) throws IOException
 	{
-		val connection = (HttpURLConnection)url.openConnection();
-		if (connection instanceof HttpsURLConnection)
-		{
-			HttpsURLConnection secureConnection = (HttpsURLConnection)connection;
-			secureConnection.setSSLSocketFactory(sslSocketFactory);
-	  }
-		return connection;
+		requests.incrementAndGet();
+		return httpClient.execute(request);
 	}
 
-	private FSFile getFile(final FSFile file, final HttpURLConnection connection)
+	private FSFile getFile(final FSFile file, final HttpResponse response)
 	{
-		val contentLength = getContentLength(connection).getOrElseThrow(() -> new IllegalStateException("No Content-Length found"));
-		val contentType = connection.getContentType();
-		val filename = HeaderValue.of(connection.getHeaderField("Content-Disposition"))
+		val contentLength = getContentLength(response).getOrElseThrow(() -> new IllegalStateException("No Content-Length found"));
+		val contentType = getHeader(response,"Content-Type").getOrNull();
+		val filename = HeaderValue.of(getHeader(response,"Content-Disposition").getOrNull())
 				.flatMap(h -> h.getParams().get("filename"))
 				.getOrNull();
 		return file.withLength(new Length(contentLength))
@@ -84,20 +196,123 @@ public class HttpClient
 				.withName(new Filename(filename));
 	}
 
-	private Option<Long> getContentLength(HttpURLConnection connection)
+	private Option<String> getHeader(final HttpResponse response, final String name)
+	{
+		return Option.of(response.getFirstHeader(name)).map(Header::getValue);
+	}
+
+	private Option<Long> getContentLength(final HttpResponse response)
 	{
-		val result = connection.getContentLengthLong();
-		return result != -1 ? Option.of(result) : Option.none();
+		return getHeader(response,"Content-Length").flatMap(v -> Try.of(() -> Long.parseLong(v)).toOption());
 	}
 
-	private FSFile downloadFile(FSFile file, final Url url) throws IOException
+	private FSFile downloadFile(FSFile file, final Url url, final TaskLease lease) throws IOException
 	{
+		fs.checkFreeSpace(file,file.getLength().getValue() - file.getFileLength().getValue());
 		while (!file.isCompleted())
 		{
-			val connection = createHttpConnection(url);
-		  connection.setRequestProperty("Range","bytes=" + file.getFileLength().getStringValue() + "-" + file.getLength().getStringValue());
-		  file = fs.append(file,connection.getInputStream());
+			lease.setBytesTransferred(file.getFileLength().getValue());
+			val request = new HttpGet(url.getValue());
+			request.setHeader("Range","bytes=" + file.getFileLength().getStringValue() + "-" + file.getLength().getStringValue());
+			try (val response = execute(request))
+			{
+				file = fs.append(file,monitor(getContent(response),lease));
+			}
 		}
 		return file;
 	}
-}
\ No newline at end of file
+
+	private boolean isSegmented(final FSFile file, final HttpResponse response)
+	{
+		return segments > 1
+				&& getHeader(response,"Accept-Ranges").exists("bytes"::equalsIgnoreCase)
+				&& getContentLength(response).exists(l -> l >= minSegmentSize)
+				&& file.getFileLength().getValue() == 0;
+	}
+
+	private FSFile downloadSegments(final FSFile file, final Url url, final TaskLease lease) throws IOException
+	{
+		val executor = Executors.newFixedThreadPool(segments,new CustomizableThreadFactory("downloadSegment-"));
+		try
+		{
+			val fileSegments = getSegments(file);
+			lease.setBytesTransferred(file.getLength().getValue() - fileSegments.map(DownloadSegment::getRemaining).sum().longValue());
+			val failure = fileSegments
+					.filter(s -> !s.isCompleted())
+					.map(s -> executor.submit(() -> downloadSegment(file,url,s,lease)))
+					.map(f -> Try.of(f::get))
+					.find(Try::isFailure)
+					.map(Try::getCause);
+			if (failure.isDefined())
+				throw toIOException(failure.get());
+			val result = fs.completePart(file);
+			downloadSegmentDAO.delete(file.getId());
+			return result;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private Seq<DownloadSegment> getSegments(final FSFile file) throws IOException
+	{
+		val result = downloadSegmentDAO.getSegments(file.getId());
+		if (!result.isEmpty())
+		{
+			fs.checkFreeSpace(file,result.map(DownloadSegment::getRemaining).sum().longValue());
+			return result;
+		}
+		fs.checkFreeSpace(file,file.getLength().getValue());
+		fs.preallocate(file);
+		return downloadSegmentDAO.insert(DownloadSegment.of(file.getId(),file.getLength().getValue(),segments));
+	}
+
+	private DownloadSegment downloadSegment(final FSFile file, final Url url, final DownloadSegment segment, final TaskLease lease) throws IOException
+	{
+		val request = new HttpGet(url.getValue());
+		request.setHeader("Range","bytes=" + segment.getNextByte() + "-" + segment.getLastByte());
+		try (val response = execute(request))
+		{
+			if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT)
+				throw new IllegalStateException("Unexpected response: " + response.getStatusLine().getStatusCode());
+			val result = segment.withNextByte(fs.write(file,monitor(getContent(response),lease),segment.getNextByte(),n -> downloadSegmentDAO.update(segment.withNextByte(n))));
+			if (!result.isCompleted())
+				throw new IOException("Segment " + result + " is incomplete");
+			return result;
+		}
+	}
+
+	private InputStream getContent(final HttpResponse response) throws IOException
+	{
+		if (response.getEntity() == null)
+			throw new IllegalStateException("Unexpected response: " + response.getStatusLine().getStatusCode());
+		return response.getEntity().getContent();
+	}
+
+	private IOException toIOException(Throwable t)
+	{
+		val cause = t instanceof ExecutionException ? t.getCause() : t;
+		if (cause instanceof RuntimeException)
+			throw (RuntimeException)cause;
+		return cause instanceof IOException ? (IOException)cause : new IOException(cause);
+	}
+
+	private InputStream monitor(final InputStream input, final TaskLease lease)
+	{
+		return new ProxyInputStream(input)
+		{
+			@Override
+			protected void afterRead(int n) throws IOException
+			{
+				lease.progress(n);
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		httpClient.close();
+	}
+}
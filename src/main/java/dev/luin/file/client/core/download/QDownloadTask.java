@@ -26,9 +26,11 @@ import com.querydsl.core.types.Path;
 import com.querydsl.core.types.PathMetadata;
 import com.querydsl.core.types.dsl.DateTimePath;
 import com.querydsl.core.types.dsl.EnumPath;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.SimplePath;
 import com.querydsl.sql.ColumnMetadata;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.Retries;
 import dev.luin.file.client.core.ScheduleTime;
 import dev.luin.file.client.core.download.DownloadStatus.Status;
@@ -50,10 +52,16 @@ public class QDownloadTask extends com.querydsl.sql.RelationalPathBase<QDownload
 
     public static final QDownloadTask downloadTask = new QDownloadTask("download_task");
 
+    public final NumberPath<Long> bytesTransferred = createNumber("bytesTransferred", Long.class);
+
     public final DateTimePath<Instant> endDate = createDateTime("endDate", Instant.class);
 
     public final SimplePath<FileId> fileId = createSimple("fileId", FileId.class);
 
+    public final DateTimePath<Instant> leaseTime = createDateTime("lease_time", Instant.class);
+
+    public final SimplePath<NodeId> nodeId = createSimple("nodeId", NodeId.class);
+
     public final SimplePath<Retries> retries = createSimple("retries", Retries.class);
 
     public final SimplePath<ScheduleTime> scheduleTime = createSimple("scheduleTime", ScheduleTime.class);
@@ -98,6 +106,9 @@ public class QDownloadTask extends com.querydsl.sql.RelationalPathBase<QDownload
     public void addMetadata() {
         addMetadata(endDate, ColumnMetadata.named("end_date").withIndex(4).ofType(Types.TIMESTAMP).withSize(26));
         addMetadata(fileId, ColumnMetadata.named("file_id").withIndex(1).ofType(Types.INTEGER).withSize(32));
+        addMetadata(leaseTime, ColumnMetadata.named("lease_time").withIndex(11).ofType(Types.TIMESTAMP).withSize(26));
+        addMetadata(bytesTransferred, ColumnMetadata.named("bytes_transferred").withIndex(12).ofType(Types.BIGINT).withSize(64).notNull());
+        addMetadata(nodeId, ColumnMetadata.named("node_id").withIndex(10).ofType(Types.VARCHAR).withSize(64));
         addMetadata(retries, ColumnMetadata.named("retries").withIndex(9).ofType(Types.TINYINT).withSize(8).notNull());
         addMetadata(scheduleTime, ColumnMetadata.named("schedule_time").withIndex(8).ofType(Types.TIMESTAMP).withSize(26).notNull());
         addMetadata(startDate, ColumnMetadata.named("start_date").withIndex(3).ofType(Types.TIMESTAMP).withSize(26));
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CachedFSFileDAO implements FSFileDAO
+{
+	@Value
+	private static class CacheEntry
+	{
+		FSFile file;
+		long expires;
+	}
+
+	@Value
+	public static class Statistics
+	{
+		long hits;
+		long misses;
+		long evictions;
+		int size;
+
+		public double getHitRate()
+		{
+			return hits + misses == 0 ? 0 : (double)hits / (hits + misses);
+		}
+	}
+
+	@NonNull
+	FSFileDAO fsFileDAO;
+	long ttl;
+	Map<FileId,CacheEntry> cache;
+	AtomicLong version = new AtomicLong();
+	AtomicLong hits = new AtomicLong();
+	AtomicLong misses = new AtomicLong();
+	AtomicLong evictions = new AtomicLong();
+
+	CachedFSFileDAO(@NonNull final FSFileDAO fsFileDAO, final int maxSize, final long ttl)
+	{
+		this.fsFileDAO = fsFileDAO;
+		this.ttl = ttl;
+		this.cache = new LinkedHashMap<FileId,CacheEntry>(16,0.75f,true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<FileId,CacheEntry> eldest)
+			{
+				val result = size() > maxSize;
+				if (result)
+					evictions.incrementAndGet();
+				return result;
+			}
+		};
+	}
+
+	public Statistics getStatistics()
+	{
+		synchronized (cache)
+		{
+			return new Statistics(hits.get(),misses.get(),evictions.get(),cache.size());
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${file.cache.statistics.delay}")
+	public void logStatistics()
+	{
+		log.info("{}",getStatistics());
+	}
+
+	@Override
+	public Option<FSFile> findFile(final FileId id)
+	{
+		val result = get(id);
+		if (result.isDefined())
+		{
+			hits.incrementAndGet();
+			return result;
+		}
+		misses.incrementAndGet();
+		val v = version.get();
+		return fsFileDAO.findFile(id).peek(f -> put(f,v));
+	}
+
+	@Override
+	public Option<FSFile> findFile(final Url url)
+	{
+		val v = version.get();
+		return fsFileDAO.findFile(url).peek(f -> put(f,v));
+	}
+
+	@Override
+	public Seq<FSFile> selectFiles()
+	{
+		return fsFileDAO.selectFiles();
+	}
+
+	@Override
+	public Seq<FSFile> selectUnshardedFiles(final long afterId, @NonNull final String baseDir, final int shardLevels, final int limit)
+	{
+		return fsFileDAO.selectUnshardedFiles(afterId,baseDir,shardLevels,limit);
+	}
+
+	@Override
+	public FSFile insertFile(@NonNull final FSFile fsFile)
+	{
+		val result = fsFileDAO.insertFile(fsFile);
+		invalidate(result.getId());
+		return result;
+	}
+
+	@Override
+	public long updateFile(@NonNull final FSFile fsFile)
+	{
+		try
+		{
+			return fsFileDAO.updateFile(fsFile);
+		}
+		finally
+		{
+			invalidate(fsFile.getId());
+		}
+	}
+
+	@Override
+	public long updatePath(@NonNull final FileId id, @NonNull final Path path)
+	{
+		try
+		{
+			return fsFileDAO.updatePath(id,path);
+		}
+		finally
+		{
+			invalidate(id);
+		}
+	}
+
+	@Override
+	public long deleteFile(final FileId id)
+	{
+		try
+		{
+			return fsFileDAO.deleteFile(id);
+		}
+		finally
+		{
+			invalidate(id);
+		}
+	}
+
+	private Option<FSFile> get(final FileId id)
+	{
+		synchronized (cache)
+		{
+			val entry = cache.get(id);
+			if (entry == null)
+				return Option.none();
+			if (entry.getExpires() < System.currentTimeMillis())
+			{
+				cache.remove(id);
+				return Option.none();
+			}
+			return Option.of(entry.getFile());
+		}
+	}
+
+	private void put(final FSFile file, final long v)
+	{
+		synchronized (cache)
+		{
+			if (version.get() == v)
+				cache.put(file.getId(),new CacheEntry(file,System.currentTimeMillis() + ttl));
+		}
+	}
+
+	private void invalidate(final FileId id)
+	{
+		remove(id);
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					remove(id);
+				}
+			});
+	}
+
+	private void remove(final FileId id)
+	{
+		synchronized (cache)
+		{
+			version.incrementAndGet();
+			cache.remove(id);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ProxyOutputStream;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+class Digests
+{
+	MessageDigest md5 = DigestUtils.getMd5Digest();
+	MessageDigest sha256 = DigestUtils.getSha256Digest();
+	AtomicLong length = new AtomicLong();
+
+	static Digests of(@NonNull final File file) throws IOException
+	{
+		val result = new Digests();
+		try (val channel = FileChannel.open(file.toPath(),StandardOpenOption.READ))
+		{
+			val buffer = ByteBuffer.allocate(IOUtils.DEFAULT_BUFFER_SIZE);
+			while (channel.read(buffer) != -1)
+			{
+				buffer.flip();
+				result.update(buffer);
+				buffer.clear();
+			}
+		}
+		return result;
+	}
+
+	long getLength()
+	{
+		return length.get();
+	}
+
+	InputStream digest(@NonNull final InputStream input)
+	{
+		return new DigestInputStream(new DigestInputStream(input,sha256),md5);
+	}
+
+	OutputStream digest(@NonNull final OutputStream output)
+	{
+		return new DigestOutputStream(new DigestOutputStream(new ProxyOutputStream(output)
+		{
+			@Override
+			protected void afterWrite(int n) throws IOException
+			{
+				length.addAndGet(n);
+			}
+		},sha256),md5);
+	}
+
+	Md5Checksum getMd5Checksum()
+	{
+		return new Md5Checksum(Hex.encodeHexString(md5.digest()));
+	}
+
+	void update(@NonNull final ByteBuffer buffer)
+	{
+		length.addAndGet(buffer.remaining());
+		sha256.update(buffer.duplicate());
+		md5.update(buffer.duplicate());
+	}
+
+	Sha256Checksum getSha256Checksum()
+	{
+		return new Sha256Checksum(Hex.encodeHexString(sha256.digest()));
+	}
+}
@@ -20,8 +20,17 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.function.LongConsumer;
 
 import org.apache.commons.io.IOUtils;
 
@@ -39,6 +48,9 @@ import lombok.val;
 @AllArgsConstructor(access = AccessLevel.PUBLIC)
 public class FSFile
 {
+	private static final int BUFFER_SIZE = 65536;
+	private static final long CHECKPOINT_SIZE = 16 * 1024 * 1024;
+
 	@With
 	FileId id;
 	@With
@@ -79,37 +91,175 @@ public class FSFile
 		return length.equals(getFileLength());
 	}
 
-	FSFile append(@NonNull final InputStream input) throws IOException
+	FSFile append(@NonNull final InputStream input, @NonNull final Digests digests) throws IOException
 	{
 		val file = getFile();
 		if (!file.exists() || isCompleted())
 			throw new FileNotFoundException(url.toString());
-		try (val output = new FileOutputStream(file,true))
+		try (val output = digests.digest(new FileOutputStream(file,true)))
 		{
 			IOUtils.copyLarge(input,output);
-			return isCompleted() ? complete() : this;
 		}
+		return isCompleted() ? complete(digests) : this;
 	}
 
 	private FSFile complete() throws IOException
 	{
 		val file = getFile();
-		if (!file.exists())// || !fsFile.isCompleted())
+		if (!file.exists())
 			throw new FileNotFoundException(url.toString());
+		return complete(Digests.of(file));
+	}
+
+	private FSFile complete(final Digests digests)
+	{
 		return this
-			.withSha256Checksum(Sha256Checksum.of(file))
-			.withMd5Checksum(Md5Checksum.of(file));
+			.withSha256Checksum(digests.getSha256Checksum())
+			.withMd5Checksum(digests.getMd5Checksum());
 	}
 
-	FSFile append(@NonNull final InputStream input, final long first, final long length) throws IOException
+	FSFile append(@NonNull final InputStream input, final long first, final long length, @NonNull final Digests digests) throws IOException
 	{
 		val file = getFile();
 		if (!file.exists() || isCompleted())
 			throw new FileNotFoundException(url.toString());
-		try (val output = new FileOutputStream(file,true))
+		try (val output = digests.digest(new FileOutputStream(file,true)))
 		{
 			IOUtils.copyLarge(input,output,first,length);
-			return isCompleted() ? complete() : this;
 		}
+		return isCompleted() ? complete(digests) : this;
+	}
+
+	FSFile append(@NonNull final InputStream input, @NonNull final ByteBuffer buffer, @NonNull final Digests digests) throws IOException
+	{
+		return append(input,0,-1,buffer,digests);
+	}
+
+	FSFile append(@NonNull final InputStream input, final long first, final long length, @NonNull final ByteBuffer buffer, @NonNull final Digests digests) throws IOException
+	{
+		val file = getFile();
+		if (!file.exists() || isCompleted())
+			throw new FileNotFoundException(url.toString());
+		try (val output = FileChannel.open(path,StandardOpenOption.WRITE,StandardOpenOption.APPEND))
+		{
+			IOUtils.skipFully(input,first);
+			transfer(Channels.newChannel(input),output,length < 0 ? Long.MAX_VALUE : length,buffer,digests);
+		}
+		return isCompleted() ? complete(digests) : this;
+	}
+
+	private static long transfer(final ReadableByteChannel input, final FileChannel output, final long length, final ByteBuffer buffer, final Digests digests) throws IOException
+	{
+		long result = 0;
+		boolean eof = false;
+		while (!eof && result < length)
+		{
+			buffer.clear();
+			buffer.limit((int)Math.min(buffer.capacity(),length - result));
+			try
+			{
+				while (buffer.hasRemaining() && !eof)
+					eof = input.read(buffer) == -1;
+			}
+			finally
+			{
+				buffer.flip();
+				digests.update(buffer);
+				while (buffer.hasRemaining())
+					result += output.write(buffer);
+			}
+		}
+		return result;
+	}
+
+	void export(@NonNull final Path target, final boolean link) throws IOException
+	{
+		val tempPath = Files.createTempFile(target.toAbsolutePath().getParent(),target.getFileName().toString(),".tmp");
+		try
+		{
+			if (!link || !createLink(tempPath))
+				transferTo(tempPath);
+			Files.move(tempPath,target,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	private boolean createLink(final Path link)
+	{
+		try
+		{
+			Files.delete(link);
+			Files.createLink(link,path);
+			return true;
+		}
+		catch (IOException | UnsupportedOperationException e)
+		{
+			return false;
+		}
+	}
+
+	private void transferTo(final Path target) throws IOException
+	{
+		try (val input = FileChannel.open(path,StandardOpenOption.READ);
+				val output = FileChannel.open(target,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			val size = input.size();
+			long position = 0;
+			while (position < size)
+				position += input.transferTo(position,size - position,output);
+			output.force(false);
+		}
+	}
+
+	void preallocate() throws IOException
+	{
+		try (val file = new RandomAccessFile(getPartFile(),"rw"))
+		{
+			if (file.length() < length.getValue())
+				file.setLength(length.getValue());
+		}
+	}
+
+	File getPartFile()
+	{
+		return new File(getFile().getPath() + ".part");
+	}
+
+	long write(@NonNull final InputStream input, final long position, @NonNull final LongConsumer checkpoint) throws IOException
+	{
+		try (val output = FileChannel.open(getPartFile().toPath(),StandardOpenOption.CREATE,StandardOpenOption.WRITE);
+				val channel = Channels.newChannel(input))
+		{
+			val buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long result = position;
+			long checkpointed = position;
+			while (channel.read(buffer) != -1)
+			{
+				buffer.flip();
+				while (buffer.hasRemaining())
+					result += output.write(buffer,result);
+				buffer.clear();
+				if (result - checkpointed >= CHECKPOINT_SIZE)
+				{
+					output.force(false);
+					checkpoint.accept(result);
+					checkpointed = result;
+				}
+			}
+			output.force(false);
+			checkpoint.accept(result);
+			return result;
+		}
+	}
+
+	FSFile completePart() throws IOException
+	{
+		Files.move(getPartFile().toPath(),path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		if (!isCompleted())
+			throw new IOException("File " + getFile() + " is incomplete");
+		return complete();
 	}
 }
@@ -15,6 +15,8 @@
  */
 package dev.luin.file.client.core.file;
 
+import java.nio.file.Path;
+
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 import lombok.NonNull;
@@ -24,7 +26,9 @@ interface FSFileDAO
 	Option<FSFile> findFile(FileId id);
 	Option<FSFile> findFile(Url url);
 	Seq<FSFile> selectFiles();
+	Seq<FSFile> selectUnshardedFiles(long afterId, @NonNull String baseDir, int shardLevels, int limit);
 	FSFile insertFile(@NonNull FSFile fsFile);
 	long updateFile(@NonNull FSFile fsFile);
+	long updatePath(@NonNull FileId id, @NonNull Path path);
 	long deleteFile(FileId id);
 }
@@ -15,6 +15,8 @@
  */
 package dev.luin.file.client.core.file;
 
+import java.nio.file.Path;
+
 import org.springframework.transaction.annotation.Transactional;
 
 import com.querydsl.core.types.ConstructorExpression;
@@ -23,6 +25,8 @@ import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQueryFactory;
 
+import dev.luin.file.client.core.querydsl.SkipLocked;
+
 import io.vavr.collection.List;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
@@ -37,6 +41,8 @@ import lombok.experimental.FieldDefaults;
 @Transactional(transactionManager = "dataSourceTransactionManager")
 class FSFileDAOImpl implements FSFileDAO
 {
+	private static final char LIKE_ESCAPE = '!';
+
 	@NonNull
 	SQLQueryFactory queryFactory;
 	QFile table = QFile.file;
@@ -71,6 +77,19 @@ class FSFileDAOImpl implements FSFileDAO
 				.fetch());
 	}
 
+	@Override
+	public Seq<FSFile> selectUnshardedFiles(final long afterId, @NonNull final String baseDir, final int shardLevels, final int limit)
+	{
+		val idPath = Expressions.numberPath(Long.class,table.id.getMetadata());
+		val pathPath = Expressions.stringPath(table.path.getMetadata());
+		return SkipLocked.fetch(queryFactory.getConfiguration().getTemplates(),queryFactory.select(fsFileProjection)
+				.from(table)
+				.where(idPath.gt(afterId)
+						.and(pathPath.notLike(RandomFile.getShardedPathPattern(baseDir,shardLevels,LIKE_ESCAPE),LIKE_ESCAPE)
+								.or(pathPath.like(RandomFile.getShardedPathPattern(baseDir,shardLevels + 1,LIKE_ESCAPE),LIKE_ESCAPE))))
+				.orderBy(idPath.asc()),limit);
+	}
+
 	@Override
 	public FSFile insertFile(@NonNull final FSFile fsFile)
 	{
@@ -101,6 +120,15 @@ class FSFileDAOImpl implements FSFileDAO
 				.execute();
 	}
 
+	@Override
+	public long updatePath(@NonNull final FileId id, @NonNull final Path path)
+	{
+		return queryFactory.update(table)
+				.set(table.path,path)
+				.where(table.id.eq(id))
+				.execute();
+	}
+
 	@Override
 	public long deleteFile(final FileId id)
 	{
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.sql.SQLQueryFactory;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Transactional(transactionManager = "dataSourceTransactionManager")
+class FileBlobDAOImpl implements FileBlobDAO
+{
+	@NonNull
+	SQLQueryFactory queryFactory;
+	QFileBlob table = QFileBlob.fileBlob;
+
+	@Override
+	@Transactional(transactionManager = "dataSourceTransactionManager", propagation = Propagation.NESTED)
+	public boolean insertBlob(@NonNull final Sha256Checksum sha256Checksum)
+	{
+		return queryFactory.insert(table)
+				.set(table.sha256Checksum,sha256Checksum)
+				.set(table.refCount,1)
+				.execute() > 0;
+	}
+
+	@Override
+	public boolean addReference(@NonNull final Sha256Checksum sha256Checksum)
+	{
+		return queryFactory.update(table)
+				.set(table.refCount,table.refCount.add(1))
+				.where(table.sha256Checksum.eq(sha256Checksum)
+						.and(table.refCount.gt(0)))
+				.execute() > 0;
+	}
+
+	@Override
+	public boolean removeReference(@NonNull final Sha256Checksum sha256Checksum)
+	{
+		queryFactory.update(table)
+				.set(table.refCount,table.refCount.subtract(1))
+				.where(table.sha256Checksum.eq(sha256Checksum))
+				.execute();
+		return queryFactory.delete(table)
+				.where(table.sha256Checksum.eq(sha256Checksum)
+						.and(table.refCount.loe(0)))
+				.execute() > 0;
+	}
+}
@@ -17,7 +17,19 @@ package dev.luin.file.client.core.file;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import dev.luin.file.client.core.transaction.TransactionTemplate;
 
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
@@ -36,11 +48,24 @@ import lombok.extern.slf4j.Slf4j;
 @AllArgsConstructor
 public class FileSystem
 {
+	private static final String BLOB_DIR = "blobs";
+
 	@NonNull
 	FSFileDAO fsFileDAO;
 	@NonNull
+	FileBlobDAO fileBlobDAO;
+	@NonNull
+	TransactionTemplate transactionTemplate;
+	@NonNull
 	String baseDir;
 	int filenameLength;
+	int shardLevels;
+	@NonNull
+	AppendMode appendMode;
+	int appendBufferSize;
+	boolean deduplicate;
+	Map<FileId,Digests> digests = new ConcurrentHashMap<>();
+	ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(this::allocateBuffer);
 
 	public Option<FSFile> findFile(final FileId id)
 	{
@@ -54,30 +79,212 @@ public class FileSystem
 
 	public FSFile createNewFile(@NonNull final NewFSFile newFile) throws IOException
 	{
-		val randomFile = RandomFile.create(baseDir,filenameLength)
-				.andThenTry(f -> f.write(newFile.getInputStream()))
+		val digests = new Digests();
+		val randomFile = RandomFile.create(baseDir,filenameLength,shardLevels).get();
+		val blob = deduplicate ? Option.of(newFile.getSha256Checksum()).filter(c -> linkBlob(c,randomFile.getPath())) : Option.<Sha256Checksum>none();
+		Try.run(() -> write(randomFile,digests.digest(newFile.getInputStream()),blob.isDefined()))
+				.onFailure(t -> delete(randomFile,blob))
 				.get();
-		val calculatedSha256Checksum = Sha256Checksum.of(randomFile.getFile());
+		val calculatedSha256Checksum = digests.getSha256Checksum();
 		if (newFile.getSha256Checksum() == null || calculatedSha256Checksum.validate(newFile.getSha256Checksum()))
 		{
+			val linkedBlob = deduplicate && blob.isEmpty() ? deduplicate(randomFile.getPath(),calculatedSha256Checksum) : blob;
 			val result = FSFile.builder()
 					.path(randomFile.getPath())
 					.name(newFile.getName())
 					.contentType(newFile.getContentType())
-					.md5Checksum(Md5Checksum.of(randomFile.getFile()))
+					.md5Checksum(digests.getMd5Checksum())
 					.sha256Checksum(calculatedSha256Checksum)
 					.timestamp(new Timestamp())
 					.length(randomFile.getLength())
 					.build();
-			return fsFileDAO.insertFile(result);
+			try
+			{
+				return fsFileDAO.insertFile(result);
+			}
+			catch (RuntimeException e)
+			{
+				delete(randomFile,linkedBlob);
+				throw e;
+			}
 		}
 		else
+		{
+			delete(randomFile,blob);
 			throw new IOException("Checksum error for file " + newFile.getName() + ". Checksum of the file uploaded (" + calculatedSha256Checksum + ") is not equal to the provided checksum (" + newFile.getSha256Checksum() + ")");
+		}
 	}
 	
+	public FSFile importFile(@NonNull final NewFSFile newFile, @NonNull final Path source, @NonNull final ImportMode importMode) throws IOException
+	{
+		if (importMode == ImportMode.COPY)
+			return createNewFile(newFile);
+		val name = newFile.getName();
+		val contentType = newFile.getContentType();
+		val randomFile = RandomFile.create(baseDir,filenameLength,shardLevels).get();
+		val imported = Try.run(() -> importFile(source,randomFile.getPath(),importMode))
+				.onFailure(t -> log.info("Cannot {} {}, copying it instead: {}",importMode,source,t.toString()));
+		if (imported.isFailure())
+		{
+			randomFile.delete();
+			return createNewFile(newFile);
+		}
+		val digests = Try.of(() -> Digests.of(randomFile.getFile()))
+				.onFailure(t -> undoImport(source,randomFile,importMode,Option.none()))
+				.get();
+		val calculatedSha256Checksum = digests.getSha256Checksum();
+		if (newFile.getSha256Checksum() == null || calculatedSha256Checksum.validate(newFile.getSha256Checksum()))
+		{
+			val blob = deduplicate ? deduplicateImport(randomFile.getPath(),calculatedSha256Checksum,importMode) : Option.<Sha256Checksum>none();
+			val result = FSFile.builder()
+					.path(randomFile.getPath())
+					.name(name)
+					.contentType(contentType)
+					.md5Checksum(digests.getMd5Checksum())
+					.sha256Checksum(calculatedSha256Checksum)
+					.timestamp(new Timestamp())
+					.length(randomFile.getLength())
+					.build();
+			try
+			{
+				return fsFileDAO.insertFile(result);
+			}
+			catch (RuntimeException e)
+			{
+				undoImport(source,randomFile,importMode,blob);
+				throw e;
+			}
+		}
+		else
+		{
+			undoImport(source,randomFile,importMode,Option.none());
+			throw new IOException("Checksum error for file " + name + ". Checksum of the file uploaded (" + calculatedSha256Checksum + ") is not equal to the provided checksum (" + newFile.getSha256Checksum() + ")");
+		}
+	}
+
+	private void importFile(final Path source, final Path target, final ImportMode importMode) throws IOException
+	{
+		if (importMode == ImportMode.LINK)
+			link(source,target);
+		else
+			Files.move(source,target,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Option<Sha256Checksum> deduplicateImport(final Path path, final Sha256Checksum sha256Checksum, final ImportMode importMode)
+	{
+		if (importMode == ImportMode.LINK)
+			return linkBlob(sha256Checksum,path) ? Option.of(sha256Checksum) : Option.none();
+		else
+			return deduplicate(path,sha256Checksum);
+	}
+
+	private void undoImport(final Path source, final RandomFile randomFile, final ImportMode importMode, final Option<Sha256Checksum> blob)
+	{
+		if (importMode != ImportMode.MOVE || Try.run(() -> restore(randomFile.getPath(),source,blob.isDefined())).onFailure(t -> log.error("",t)).isSuccess())
+			delete(randomFile,blob);
+	}
+
+	private static void restore(final Path path, final Path source, final boolean shared) throws IOException
+	{
+		if (shared)
+			Files.copy(path,source);
+		else
+			Files.move(path,source,StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void link(final Path existing, final Path path) throws IOException
+	{
+		val linkPath = Paths.get(path + ".link");
+		try
+		{
+			Files.createLink(linkPath,existing);
+			Files.move(linkPath,path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(linkPath);
+		}
+	}
+
+	private void write(final RandomFile randomFile, final InputStream input, final boolean linked) throws IOException
+	{
+		if (linked)
+			IOUtils.consume(input);
+		else
+			randomFile.write(input);
+	}
+
+	private void delete(final RandomFile randomFile, final Option<Sha256Checksum> blob)
+	{
+		randomFile.delete();
+		blob.forEach(this::removeBlobReference);
+	}
+
+	private Option<Sha256Checksum> deduplicate(final Path path, final Sha256Checksum sha256Checksum)
+	{
+		if (linkBlob(sha256Checksum,path))
+			return Option.of(sha256Checksum);
+		if (insertBlob(sha256Checksum))
+		{
+			val blobPath = getBlobPath(sha256Checksum);
+			return Try.run(() -> createBlob(blobPath,path))
+					.onFailure(t -> log.error("Error creating blob " + blobPath,t))
+					.onFailure(t -> removeBlobReference(sha256Checksum))
+					.map(v -> sha256Checksum)
+					.toOption();
+		}
+		else
+			return linkBlob(sha256Checksum,path) ? Option.of(sha256Checksum) : Option.none();
+	}
+
+	private boolean insertBlob(final Sha256Checksum sha256Checksum)
+	{
+		return Try.of(() -> fileBlobDAO.insertBlob(sha256Checksum))
+				.recover(DataIntegrityViolationException.class,false)
+				.get();
+	}
+
+	private void createBlob(final Path blobPath, final Path path) throws IOException
+	{
+		Files.createDirectories(blobPath.getParent());
+		Files.deleteIfExists(blobPath);
+		Files.createLink(blobPath,path);
+	}
+
+	private boolean linkBlob(final Sha256Checksum sha256Checksum, final Path path)
+	{
+		if (!fileBlobDAO.addReference(sha256Checksum))
+			return false;
+		val blobPath = getBlobPath(sha256Checksum);
+		return Try.run(() -> link(blobPath,path))
+				.onFailure(t -> log.warn("Error linking blob " + blobPath,t))
+				.onFailure(t -> removeBlobReference(sha256Checksum))
+				.isSuccess();
+	}
+
+	private Option<Sha256Checksum> getBlob(final FSFile fsFile)
+	{
+		return Option.of(fsFile.getSha256Checksum())
+				.filter(c -> Try.of(() -> Files.isSameFile(fsFile.getPath(),getBlobPath(c))).getOrElse(false));
+	}
+
+	private void removeBlobReference(final Sha256Checksum sha256Checksum)
+	{
+		transactionTemplate.executeTransaction(() ->
+		{
+			if (fileBlobDAO.removeReference(sha256Checksum))
+				Try.of(() -> Files.deleteIfExists(getBlobPath(sha256Checksum))).onFailure(t -> log.error("",t));
+		});
+	}
+
+	private Path getBlobPath(final Sha256Checksum sha256Checksum)
+	{
+		return RandomFile.getPath(Paths.get(baseDir,BLOB_DIR).toString(),sha256Checksum.getValue(),shardLevels);
+	}
+
 	public FSFile createEmptyFile(@NonNull final String url) throws IOException
 	{
-		val randomFile = RandomFile.create(baseDir,filenameLength).get();
+		val randomFile = RandomFile.create(baseDir,filenameLength,shardLevels).get();
 		val result = FSFile.builder()
 				.url(new Url(url))
 				.path(randomFile.getPath())
@@ -86,6 +293,11 @@ public class FileSystem
 		return fsFileDAO.insertFile(result);
 	}
 
+	public void exportFile(@NonNull final FSFile fsFile, @NonNull final Path target, final boolean link) throws IOException
+	{
+		fsFile.export(target,link && getBlob(fsFile).isEmpty());
+	}
+
 	public boolean updateFile(FSFile file)
 	{
 		return fsFileDAO.updateFile(file) > 0;
@@ -93,23 +305,80 @@ public class FileSystem
 
 	public FSFile append(@NonNull FSFile fsFile, @NonNull final InputStream input) throws IOException
 	{
-		val result = fsFile.append(input);
+		val result = appendMode == AppendMode.CHANNEL ? fsFile.append(input,buffers.get(),getDigests(fsFile)) : fsFile.append(input,getDigests(fsFile));
 		if (result.isCompleted())
-			fsFileDAO.updateFile(result);
+			complete(result);
 		return result;
 	}
 
 	public FSFile append(@NonNull final FSFile fsFile, @NonNull final InputStream input, final long first, final long length) throws IOException
 	{
-		val result = fsFile.append(input,first,length);
+		val result = appendMode == AppendMode.CHANNEL ? fsFile.append(input,first,length,buffers.get(),getDigests(fsFile)) : fsFile.append(input,first,length,getDigests(fsFile));
 		if (result.isCompleted())
-			fsFileDAO.updateFile(result);
+			complete(result);
+		return result;
+	}
+
+	private Digests getDigests(final FSFile fsFile) throws IOException
+	{
+		val fileLength = fsFile.getFileLength().getValue();
+		val result = digests.get(fsFile.getId());
+		if (result != null && result.getLength() == fileLength)
+			return result;
+		log.debug("Restoring digests of {} from {} bytes",fsFile.getId(),fileLength);
+		val restored = Digests.of(fsFile.getFile());
+		digests.put(fsFile.getId(),restored);
+		return restored;
+	}
+
+	public void discardDigests(@NonNull final FileId id)
+	{
+		digests.remove(id);
+	}
+
+	private ByteBuffer allocateBuffer()
+	{
+		return ByteBuffer.allocateDirect(appendBufferSize);
+	}
+
+	private void complete(final FSFile fsFile)
+	{
+		digests.remove(fsFile.getId());
+		fsFileDAO.updateFile(fsFile);
+	}
+
+	public long write(@NonNull final FSFile fsFile, @NonNull final InputStream input, final long position, @NonNull final LongConsumer checkpoint) throws IOException
+	{
+		return fsFile.write(input,position,checkpoint);
+	}
+
+	public void checkFreeSpace(@NonNull final FSFile fsFile, final long required) throws IOException
+	{
+		val usableSpace = Files.getFileStore(fsFile.getFile().toPath()).getUsableSpace();
+		if (required > usableSpace)
+			throw new IOException("Not enough free space for file " + fsFile.getId() + ". Required " + required + " bytes, available " + usableSpace + " bytes");
+	}
+
+	public void preallocate(@NonNull final FSFile fsFile) throws IOException
+	{
+		fsFile.preallocate();
+	}
+
+	public FSFile completePart(@NonNull final FSFile fsFile) throws IOException
+	{
+		val result = fsFile.completePart();
+		fsFileDAO.updateFile(result);
 		return result;
 	}
 
 	public boolean deleteFile(@NonNull final FSFile fsFile, final boolean force)
 	{
+		digests.remove(fsFile.getId());
+		val blob = getBlob(fsFile);
+		Try.of(() -> Files.deleteIfExists(fsFile.getPartFile().toPath())).onFailure(t -> log.error("",t));
 		val result = Try.of(() -> Files.deleteIfExists(fsFile.getFile().toPath())).onFailure(t -> log.error("",t));
+		if (result.isSuccess())
+			blob.forEach(this::removeBlobReference);
 		if (force || result.isSuccess())
 			fsFileDAO.deleteFile(fsFile.getId());
 		return force || result.getOrElse(false);
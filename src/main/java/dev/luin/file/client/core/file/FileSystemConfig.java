@@ -18,10 +18,13 @@ package dev.luin.file.client.core.file;
 import com.querydsl.sql.SQLQueryFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import dev.luin.file.client.core.transaction.TransactionTemplate;
+
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 
@@ -33,20 +36,66 @@ public class FileSystemConfig
 	String baseDir;
 	@Value("${file.filenameLength}")
 	int filenameLength;
+	@Value("${file.shardLevels}")
+	int shardLevels;
+	@Value("${file.deduplicate}")
+	boolean deduplicate;
+	@Value("${file.migration.enabled}")
+	boolean migrationEnabled;
+	@Value("${file.migration.batchSize}")
+	int migrationBatchSize;
+	@Value("${file.migration.delay}")
+	long migrationDelay;
+	@Value("${file.migration.maxRetries}")
+	int migrationMaxRetries;
+	@Value("${file.migration.retryDelay}")
+	long migrationRetryDelay;
+	@Value("${file.appendMode}")
+	AppendMode appendMode;
+	@Value("${file.appendBufferSize}")
+	int appendBufferSize;
+	@Value("${file.cache.maxSize}")
+	int cacheMaxSize;
+	@Value("${file.cache.ttl}")
+	long cacheTtl;
 
 	@Bean
-	public FileSystem fileSystem(@Autowired FSFileDAO fsFileDAO)
+	public FileSystem fileSystem(@Autowired @Qualifier("cachedFSFileDAO") FSFileDAO fsFileDAO, @Autowired FileBlobDAO fileBlobDAO, @Autowired @Qualifier("dataSourceTransactionTemplate") TransactionTemplate transactionTemplate)
 	{
 		return FileSystem.builder()
 				.fsFileDAO(fsFileDAO)
+				.fileBlobDAO(fileBlobDAO)
+				.transactionTemplate(transactionTemplate)
 				.baseDir(baseDir)
 				.filenameLength(filenameLength)
+				.shardLevels(shardLevels)
+				.appendMode(appendMode)
+				.appendBufferSize(appendBufferSize)
+				.deduplicate(deduplicate)
 				.build();
 	}
 
+	@Bean
+	public ShardMigration shardMigration(@Autowired @Qualifier("cachedFSFileDAO") FSFileDAO fsFileDAO, @Autowired @Qualifier("dataSourceTransactionTemplate") TransactionTemplate transactionTemplate)
+	{
+		return new ShardMigration(fsFileDAO,transactionTemplate,baseDir,shardLevels,migrationBatchSize,migrationMaxRetries,migrationRetryDelay,migrationEnabled,migrationDelay);
+	}
+
 	@Bean
 	public FSFileDAO fsFileDAO(@Autowired SQLQueryFactory queryFactory)
 	{
 		return new FSFileDAOImpl(queryFactory);
 	}
+
+	@Bean
+	public FSFileDAO cachedFSFileDAO(@Autowired @Qualifier("fsFileDAO") FSFileDAO fsFileDAO)
+	{
+		return cacheMaxSize > 0 ? new CachedFSFileDAO(fsFileDAO,cacheMaxSize,cacheTtl) : fsFileDAO;
+	}
+
+	@Bean
+	public FileBlobDAO fileBlobDAO(@Autowired SQLQueryFactory queryFactory)
+	{
+		return new FileBlobDAOImpl(queryFactory);
+	}
 }
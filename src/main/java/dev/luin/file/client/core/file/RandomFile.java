@@ -19,11 +19,13 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
 
 import io.vavr.control.Option;
 import io.vavr.control.Try;
@@ -32,21 +34,24 @@ import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.Value;
 import lombok.val;
+import lombok.var;
 
 @Value
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class RandomFile
 {
+	private static final int SHARD_LENGTH = 2;
+
 	@NonNull
 	Path path;
 	@NonNull
 	File file;
 
-	public static Try<RandomFile> create(@NonNull final String baseDir, final int filenameLength)
+	public static Try<RandomFile> create(@NonNull final String baseDir, final int filenameLength, final int shardLevels)
 	{
 		while (true)
 		{
-			val path = createRandomPath(baseDir, filenameLength);
+			val path = createRandomPath(baseDir,filenameLength,shardLevels);
 			try
 			{
 				val file = createFile(path);
@@ -60,14 +65,40 @@ public class RandomFile
 		}
 	}
 	
-	private static Path createRandomPath(final String baseDir, final int filenameLength)
+	private static Path createRandomPath(final String baseDir, final int filenameLength, final int shardLevels)
 	{
 		val filename = RandomStringUtils.randomNumeric(filenameLength);
-		return Paths.get(baseDir,filename);
+		return getPath(baseDir,filename,shardLevels);
+	}
+
+	static Path getPath(@NonNull final String baseDir, @NonNull final String filename, final int shardLevels)
+	{
+		var result = Paths.get(baseDir);
+		for (int i = 0; i < shardLevels && (i + 1) * SHARD_LENGTH < filename.length(); i++)
+			result = result.resolve(filename.substring(i * SHARD_LENGTH,(i + 1) * SHARD_LENGTH));
+		return result.resolve(filename);
+	}
+
+	static String getShardedPathPattern(@NonNull final String baseDir, final int shardLevels, final char escape)
+	{
+		val base = Paths.get(baseDir);
+		val separator = base.getFileSystem().getSeparator();
+		val result = new StringBuilder(escape(base.toString(),escape));
+		for (int i = 0; i < shardLevels; i++)
+			result.append(separator).append(StringUtils.repeat('_',SHARD_LENGTH));
+		return result.append(separator).append('%').toString();
+	}
+
+	private static String escape(final String value, final char escape)
+	{
+		val e = String.valueOf(escape);
+		return value.replace(e,e + e).replace("%",e + "%").replace("_",e + "_");
 	}
 	
 	private static Option<RandomFile> createFile(final Path path) throws IOException
 	{
+		if (path.getParent() != null)
+			Files.createDirectories(path.getParent());
 		val file = path.toFile();
 		return file.createNewFile() ? Option.some(new RandomFile(path,file)) : Option.none();
 	}
@@ -83,6 +114,11 @@ public class RandomFile
 		return new Length(file.length());
 	}
 
+	public boolean delete()
+	{
+		return file.delete();
+	}
+
 	public long write(@NonNull final InputStream input)
 	{
 		return Try.withResources(() -> new FileOutputStream(file))
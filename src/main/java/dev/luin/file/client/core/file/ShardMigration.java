@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import dev.luin.file.client.core.transaction.TransactionTemplate;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardMigration
+{
+	@NonNull
+	FSFileDAO fsFileDAO;
+	@NonNull
+	TransactionTemplate transactionTemplate;
+	@NonNull
+	String baseDir;
+	int shardLevels;
+	int batchSize;
+	int maxRetries;
+	long retryDelay;
+	ScheduledExecutorService executorService;
+	AtomicLong lastId = new AtomicLong(-1);
+	AtomicLong nextPass = new AtomicLong();
+	AtomicBoolean skipped = new AtomicBoolean();
+	Map<FileId,Integer> retries = new ConcurrentHashMap<>();
+
+	ShardMigration(@NonNull FSFileDAO fsFileDAO, @NonNull TransactionTemplate transactionTemplate, @NonNull String baseDir, int shardLevels, int batchSize, int maxRetries, long retryDelay, boolean enabled, long delay)
+	{
+		this.fsFileDAO = fsFileDAO;
+		this.transactionTemplate = transactionTemplate;
+		this.baseDir = baseDir;
+		this.shardLevels = shardLevels;
+		this.batchSize = batchSize;
+		this.maxRetries = maxRetries;
+		this.retryDelay = retryDelay;
+		this.executorService = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("shardMigration-"));
+		if (enabled)
+			executorService.scheduleWithFixedDelay(this::run,delay,delay,TimeUnit.MILLISECONDS);
+	}
+
+	public void run()
+	{
+		if (System.currentTimeMillis() >= nextPass.get())
+			Try.of(this::migrateBatch).onFailure(t -> log.error("",t));
+	}
+
+	public int migrateBatch()
+	{
+		val files = transactionTemplate.executeTransactionWithResult(this::migrateFiles);
+		if (files.isEmpty())
+			return finishPass();
+		val migrated = files.flatMap(Tuple2::_2);
+		migrated.forEach(this::deleteSource);
+		lastId.set(files.last()._1.getId().getValue());
+		log.info("Migrated {} of {} files up to id {}",migrated.size(),files.size(),lastId.get());
+		return migrated.size();
+	}
+
+	public void shutdown()
+	{
+		executorService.shutdownNow();
+	}
+
+	private int finishPass()
+	{
+		lastId.set(-1);
+		if (skipped.getAndSet(false))
+		{
+			nextPass.set(System.currentTimeMillis() + retryDelay);
+			log.info("Retrying skipped files in {} ms",retryDelay);
+		}
+		else
+		{
+			log.info("Finished migrating files to {} shard levels",shardLevels);
+			executorService.shutdown();
+		}
+		return 0;
+	}
+
+	private Seq<Tuple2<FSFile,Option<Path>>> migrateFiles()
+	{
+		return fsFileDAO.selectUnshardedFiles(lastId.get(),baseDir,shardLevels,batchSize)
+				.map(f -> Tuple.of(f,migrate(f)));
+	}
+
+	private Option<Path> migrate(final FSFile file)
+	{
+		val source = file.getPath();
+		val target = RandomFile.getPath(baseDir,source.getFileName().toString(),shardLevels);
+		if (source.equals(target))
+			return Option.none();
+		return Try.of(() -> link(file,target))
+				.onFailure(t -> log.error("Error migrating file " + file.getId(),t))
+				.onFailure(t -> skip(file))
+				.onSuccess(r -> r.forEach(p -> retries.remove(file.getId())))
+				.getOrElse(Option.none());
+	}
+
+	private void skip(final FSFile file)
+	{
+		val attempts = retries.merge(file.getId(),1,Integer::sum);
+		if (attempts <= maxRetries)
+			skipped.set(true);
+		else if (attempts == maxRetries + 1)
+			log.warn("Skipping migration of file {} after {} retries",file.getId(),maxRetries);
+	}
+
+	private Option<Path> link(final FSFile file, final Path target) throws IOException
+	{
+		val source = file.getPath();
+		if (Files.exists(source))
+		{
+			if (file.getLength() == null || !file.isCompleted())
+			{
+				skip(file);
+				return Option.none();
+			}
+			Files.createDirectories(target.getParent());
+			if (!Files.exists(target) || !Files.isSameFile(source,target))
+				linkOrCopy(source,target);
+		}
+		else if (!Files.exists(target))
+			return Option.none();
+		fsFileDAO.updatePath(file.getId(),target);
+		return Option.some(source);
+	}
+
+	private static void linkOrCopy(final Path source, final Path target) throws IOException
+	{
+		Files.deleteIfExists(target);
+		try
+		{
+			Files.createLink(target,source);
+		}
+		catch (UnsupportedOperationException e)
+		{
+			val tempPath = Paths.get(target + ".tmp");
+			Files.copy(source,tempPath,StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempPath,target,StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	private void deleteSource(final Path source)
+	{
+		Try.run(() -> Files.deleteIfExists(source)).onFailure(t -> log.error("Error deleting file " + source,t));
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.querydsl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.querydsl.sql.types.AbstractType;
+
+import dev.luin.file.client.core.NodeId;
+
+class NodeIdType extends AbstractType<NodeId>
+{
+	public NodeIdType(int type)
+	{
+		super(type);
+	}
+
+	@Override
+	public Class<NodeId> getReturnedClass()
+	{
+		return NodeId.class;
+	}
+
+	@Override
+	public NodeId getValue(ResultSet rs, int startIndex) throws SQLException
+	{
+		return toNodeId(rs.getString(startIndex));
+	}
+
+	private NodeId toNodeId(String value)
+	{
+		return value == null ? null : new NodeId(value);
+	}
+
+	@Override
+	public void setValue(PreparedStatement st, int startIndex, NodeId value) throws SQLException
+	{
+		st.setString(startIndex,value != null ? value.getValue() : null);
+	}
+}
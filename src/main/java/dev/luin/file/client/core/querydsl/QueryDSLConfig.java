@@ -70,6 +70,7 @@ public class QueryDSLConfig
 		result.register(new FilenameType(Types.VARBINARY));
 		result.register(new LengthType(Types.BIGINT));
 		result.register(new Md5ChecksumType(Types.VARCHAR));
+		result.register(new NodeIdType(Types.VARCHAR));
 		result.register(new PathType(Types.VARCHAR));
 		result.register(new RetriesType(Types.TINYINT));
 		result.register(new ScheduleTimeType(Types.TIMESTAMP));
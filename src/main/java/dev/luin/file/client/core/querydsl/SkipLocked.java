@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.querydsl;
+
+import static io.vavr.API.$;
+import static io.vavr.API.Case;
+import static io.vavr.API.Match;
+import static io.vavr.Predicates.anyOf;
+import static io.vavr.Predicates.instanceOf;
+
+import com.querydsl.core.QueryFlag.Position;
+import com.querydsl.sql.MySQLTemplates;
+import com.querydsl.sql.OracleTemplates;
+import com.querydsl.sql.PostgreSQLTemplates;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLServerTemplates;
+import com.querydsl.sql.SQLTemplates;
+
+import io.vavr.collection.Iterator;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SkipLocked
+{
+	private static final String FOR_UPDATE_SKIP_LOCKED = "\nfor update skip locked";
+	private static final String WITH_READPAST = " with (updlock, rowlock, readpast)";
+
+	public static <T> Seq<T> fetch(@NonNull SQLTemplates templates, @NonNull SQLQuery<T> query, int limit)
+	{
+		return Match(templates).of(
+				Case($(instanceOf(OracleTemplates.class)),t -> iterate(query.addFlag(Position.END,FOR_UPDATE_SKIP_LOCKED),limit)),
+				Case($(anyOf(instanceOf(PostgreSQLTemplates.class),instanceOf(MySQLTemplates.class))),t -> List.ofAll(query.limit(limit).addFlag(Position.END,FOR_UPDATE_SKIP_LOCKED).fetch())),
+				Case($(instanceOf(SQLServerTemplates.class)),t -> List.ofAll(query.limit(limit).addFlag(Position.BEFORE_FILTERS,WITH_READPAST).fetch())),
+				Case($(),t -> List.ofAll(query.limit(limit).fetch())));
+	}
+
+	private static <T> Seq<T> iterate(SQLQuery<T> query, int limit)
+	{
+		try (val result = query.iterate())
+		{
+			return Iterator.ofAll(result).take(limit).toList();
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.springframework.context.annotation.Configuration;
 
 import dev.luin.file.client.core.download.DownloadTaskManager;
 import dev.luin.file.client.core.file.FileSystem;
+import dev.luin.file.client.core.file.ImportMode;
 import dev.luin.file.client.core.service.download.DownloadService;
 import dev.luin.file.client.core.service.download.DownloadServiceImpl;
 import dev.luin.file.client.core.service.file.AttachmentFactory;
@@ -49,14 +50,18 @@ public class ServiceConfig
 	FileSystem fs;
 	@Value("${file.share.upload.location}")
 	String shareUploadLocation;
+	@Value("${file.share.upload.importMode}")
+	ImportMode shareUploadImportMode;
 	@Value("${file.share.download.location}")
 	String shareDownloadLocation;
+	@Value("${file.share.download.link}")
+	boolean shareDownloadLink;
 
 	@Bean
 	@Autowired
 	public UploadService uploadService(UploadTaskManager uploadTaskManager)
 	{
-		return new UploadServiceImpl(fs,Paths.get(shareUploadLocation).toAbsolutePath(),uploadTaskManager);
+		return new UploadServiceImpl(fs,Paths.get(shareUploadLocation).toAbsolutePath(),uploadTaskManager,shareUploadImportMode);
 	}
 
 	@Bean
@@ -69,7 +74,7 @@ public class ServiceConfig
 	@Bean
 	public FileService fileService()
 	{
-		return new FileServiceImpl(fs,Paths.get(shareDownloadLocation).toAbsolutePath());
+		return new FileServiceImpl(fs,Paths.get(shareDownloadLocation).toAbsolutePath(),shareDownloadLink);
 	}
 
 	@Bean
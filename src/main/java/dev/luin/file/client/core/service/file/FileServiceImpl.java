@@ -15,11 +15,8 @@
  */
 package dev.luin.file.client.core.service.file;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.function.Consumer;
 
 import javax.activation.DataHandler;
 import javax.ws.rs.GET;
@@ -29,7 +26,6 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.cxf.jaxrs.ext.multipart.Attachment;
 import org.apache.cxf.jaxrs.ext.multipart.MultipartBody;
 
@@ -60,6 +56,7 @@ public class FileServiceImpl implements FileService
 	@NonNull
 	FileSystem fs;
 	java.nio.file.Path sharedFs;
+	boolean linkFiles;
 
 	@NonNull
 
@@ -99,18 +96,15 @@ public class FileServiceImpl implements FileService
 		log.debug("getFileInfo {}",id);
 		java.nio.file.Path validatedFilename =
 				Try.of(() -> NewFSFileFromFsImpl.validateFilename(filename,sharedFs)).getOrElseThrow(ServiceException.defaultExceptionProvider);
-		return Try.of(() -> fs.findFile(new FileId(id))
-				.filter(FSFile::isCompleted)
-				.peek(writeToFile(validatedFilename))
-				.peek(f -> log.info("Retreived file {}",f))
-				.map(FileInfo::new)
-				.getOrElseThrow(() -> FILE_NOT_FOUND_EXCEPTION)).getOrElseThrow(ServiceException.defaultExceptionProvider);
-	}
-
-	private Consumer<FSFile> writeToFile(java.nio.file.Path filename)
-	{
-		// TODO handle exceptions
-		return f -> Try.withResources(() -> new FileInputStream(f.getFile()),() -> new FileOutputStream(filename.toFile())).of(IOUtils::copyLarge);
+		return Try.of(() ->
+		{
+			val fsFile = fs.findFile(new FileId(id))
+					.filter(FSFile::isCompleted)
+					.getOrElseThrow(() -> FILE_NOT_FOUND_EXCEPTION);
+			fs.exportFile(fsFile,validatedFilename,linkFiles);
+			log.info("Retreived file {}",fsFile);
+			return new FileInfo(fsFile);
+		}).getOrElseThrow(ServiceException.defaultExceptionProvider);
 	}
 
 	@GET
@@ -72,6 +72,8 @@ public class DownloadTask
 	Instant scheduleTime;
 	@XmlElement(required = true)
 	int retries;
+	@XmlElement(required = true)
+	long bytesTransferred;
 
 	public DownloadTask(dev.luin.file.client.core.download.DownloadTask task)
 	{
@@ -84,5 +86,6 @@ public class DownloadTask
 		this.statusTime = task.getStatus().getTime();
 		this.scheduleTime = task.getScheduleTime().getValue();
 		this.retries = task.getRetries().getValue();
+		this.bytesTransferred = task.getBytesTransferred();
 	}
 }
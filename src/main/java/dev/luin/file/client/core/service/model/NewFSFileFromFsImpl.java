@@ -19,6 +19,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 
 import javax.ws.rs.core.MediaType;
@@ -73,8 +74,9 @@ public class NewFSFileFromFsImpl implements NewFSFile
 
 	public static Path validateFilename(String filename, Path sharedFs) throws IOException
 	{
-		val f = sharedFs.resolve(filename);
-		if (f.toAbsolutePath().startsWith(sharedFs))
+		val base = sharedFs.toAbsolutePath().normalize();
+		val f = base.resolve(filename).normalize();
+		if (f.startsWith(base) && !f.equals(base) && (!Files.exists(f,LinkOption.NOFOLLOW_LINKS) || f.toRealPath().startsWith(base.toRealPath())))
 			return f;
 		else
 			throw new IOException("Illegal file access");
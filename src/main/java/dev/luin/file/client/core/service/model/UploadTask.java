@@ -64,6 +64,8 @@ public class UploadTask
 	Instant scheduleTime;
 	@XmlElement(required = true)
 	int retries;
+	@XmlElement(required = true)
+	long bytesTransferred;
 
 	public UploadTask(dev.luin.file.client.core.upload.UploadTask task)
 	{
@@ -74,5 +76,6 @@ public class UploadTask
 		this.statusTime = task.getStatus().getTime();
 		this.scheduleTime = task.getScheduleTime().getValue();
 		this.retries = task.getRetries().getValue();
+		this.bytesTransferred = task.getBytesTransferred();
 	}
 }
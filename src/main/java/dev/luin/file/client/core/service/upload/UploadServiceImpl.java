@@ -35,6 +35,7 @@ import dev.luin.file.client.core.file.FSFile;
 import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.file.FileSystem;
 import dev.luin.file.client.core.file.Filename;
+import dev.luin.file.client.core.file.ImportMode;
 import dev.luin.file.client.core.file.Url;
 import dev.luin.file.client.core.service.NotFoundException;
 import dev.luin.file.client.core.service.ServiceException;
@@ -67,6 +68,8 @@ public class UploadServiceImpl implements UploadService
 	java.nio.file.Path sharedFs;
 	@NonNull
 	UploadTaskManager uploadTaskManager;
+	@NonNull
+	ImportMode importMode;
 
 	@POST
 	@Path("")
@@ -178,7 +181,7 @@ public class UploadServiceImpl implements UploadService
 
 	private FSFile createFile(final NewFileFromFs file) throws IOException
 	{
-		return fs.createNewFile(NewFSFileFromFsImpl.of(file, sharedFs));
+		return fs.importFile(NewFSFileFromFsImpl.of(file,sharedFs),NewFSFileFromFsImpl.validateFilename(file.getName(),sharedFs),importMode);
 	}
 
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Getter
+public enum ChecksumAlgorithm
+{
+	MD5("md5","MD5"), SHA1("sha1","SHA-1"), SHA256("sha256","SHA-256");
+
+	String value;
+	String digestAlgorithm;
+
+	public static Option<ChecksumAlgorithm> of(String value)
+	{
+		return List.of(ChecksumAlgorithm.values())
+				.find(a -> a.value.equalsIgnoreCase(value.trim()));
+	}
+
+	MessageDigest createDigest()
+	{
+		return DigestUtils.getDigest(digestAlgorithm);
+	}
+}
@@ -19,7 +19,14 @@ import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLStreamHandler;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
@@ -27,30 +34,148 @@ import javax.net.ssl.SSLSocketFactory;
 import dev.luin.file.client.core.security.KeyStore;
 import dev.luin.file.client.core.security.KeyStoreType;
 import dev.luin.file.client.core.security.TrustStore;
+import dev.luin.file.client.core.upload.KeepAliveURLStreamHandler.KeepAliveConnection;
 import io.tus.java.client.ProtocolException;
 import io.tus.java.client.TusClient;
 import io.tus.java.client.TusExecutor;
 import io.tus.java.client.TusURLMemoryStore;
 import io.tus.java.client.TusUpload;
 import io.tus.java.client.TusUploader;
+import io.vavr.control.Try;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class Client extends TusClient
 {
+	private static final int CHECKSUM_MISMATCH = 460;
+
 	SSLSocketFactory sslSocketFactory;
+	int readTimeout;
+	URLStreamHandler urlStreamHandler;
+	int checksumBufferSize;
+	@NonFinal
+	@Setter(value=AccessLevel.PACKAGE)
+	volatile ChecksumAlgorithm checksumAlgorithm;
+
+	public Client(SSLSocketFactory sslSocketFactory)
+	{
+		this(sslSocketFactory,0,null,0);
+	}
+
+	@Override
+	public void setUploadCreationURL(URL uploadCreationURL)
+	{
+		super.setUploadCreationURL(toURL(uploadCreationURL));
+	}
+
+	@Override
+	public TusUploader beginOrResumeUploadFromURL(TusUpload upload, URL uploadURL) throws ProtocolException, IOException
+	{
+		return super.beginOrResumeUploadFromURL(upload,toURL(uploadURL));
+	}
+
+	@Override
+	protected void uploadFinished(TusUpload upload)
+	{
+		if (upload.getFingerprint() != null)
+			super.uploadFinished(upload);
+	}
+
+	public boolean supportsExtension(String extension) throws IOException
+	{
+		return getOptions("Tus-Extension").contains(extension);
+	}
+
+	public List<String> getChecksumAlgorithms() throws IOException
+	{
+		return getOptions("Tus-Checksum-Algorithm");
+	}
+
+	private List<String> getOptions(String header) throws IOException
+	{
+		val connection = (HttpURLConnection)getUploadCreationURL().openConnection();
+		connection.setRequestMethod("OPTIONS");
+		prepareConnection(connection);
+		try
+		{
+			val values = connection.getResponseCode() / 100 == 2 ? connection.getHeaderField(header) : null;
+			return values == null ? Collections.emptyList() : Arrays.stream(values.split(",")).map(String::trim).collect(Collectors.toList());
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	public static boolean isChecksumMismatch(ProtocolException e)
+	{
+		val connection = e.getCausingConnection();
+		return connection != null && Try.of(connection::getResponseCode).filter(c -> c == CHECKSUM_MISMATCH).isSuccess();
+	}
+
+	public URL createPartialUpload(long length) throws ProtocolException, IOException
+	{
+		val headers = new HashMap<String,String>();
+		headers.put("Upload-Concat","partial");
+		headers.put("Upload-Length",Long.toString(length));
+		return createUpload(headers);
+	}
+
+	public URL createFinalUpload(List<URL> partialUploads, TusUpload upload) throws ProtocolException, IOException
+	{
+		val headers = new HashMap<String,String>();
+		headers.put("Upload-Concat","final;" + partialUploads.stream().map(URL::toString).collect(Collectors.joining(" ")));
+		val metadata = upload.getEncodedMetadata();
+		if (!metadata.isEmpty())
+			headers.put("Upload-Metadata",metadata);
+		return createUpload(headers);
+	}
+
+	private URL createUpload(Map<String,String> headers) throws ProtocolException, IOException
+	{
+		val connection = (HttpURLConnection)getUploadCreationURL().openConnection();
+		connection.setRequestMethod("POST");
+		prepareConnection(connection);
+		headers.forEach(connection::setRequestProperty);
+		try
+		{
+			val responseCode = connection.getResponseCode();
+			if (responseCode / 100 != 2)
+				throw new ProtocolException("unexpected status code (" + responseCode + ") while creating upload",connection);
+			val location = connection.getHeaderField("Location");
+			if (location == null || location.isEmpty())
+				throw new ProtocolException("missing upload URL in response for creating upload",connection);
+			return new URL(connection.getURL(),location);
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	private URL toURL(URL url)
+	{
+		return url == null || urlStreamHandler == null ? url : Try.of(() -> new URL(null,url.toString(),urlStreamHandler)).get();
+	}
 
 	@Override
 	public void prepareConnection(HttpURLConnection connection)
 	{
 		super.prepareConnection(connection);
-		if (connection instanceof HttpsURLConnection)
+		if (readTimeout > 0)
+			connection.setReadTimeout(readTimeout);
+		if (connection instanceof KeepAliveConnection)
+			((KeepAliveConnection)connection).setChecksum(checksumAlgorithm,checksumBufferSize);
+		val c = connection instanceof KeepAliveConnection ? ((KeepAliveConnection)connection).getConnection() : connection;
+		if (c instanceof HttpsURLConnection)
 		{
-			HttpsURLConnection secureConnection = (HttpsURLConnection)connection;
+			HttpsURLConnection secureConnection = (HttpsURLConnection)c;
 			secureConnection.setSSLSocketFactory(sslSocketFactory);
 	  }
 	}
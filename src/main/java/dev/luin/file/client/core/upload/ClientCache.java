@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dev.luin.file.client.core.file.Url;
+import io.tus.java.client.TusURLStore;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class ClientCache
+{
+	@Value
+	public static class Statistics
+	{
+		int clients;
+		long requests;
+		long handshakes;
+	}
+
+	@NonNull
+	SSLFactoryManager sslFactoryManager;
+	@NonNull
+	TusURLStore urlStore;
+	int readTimeout;
+	@NonNull
+	Seq<ChecksumAlgorithm> checksumAlgorithms;
+	int checksumBufferSize;
+	KeepAliveURLStreamHandler urlStreamHandler = new KeepAliveURLStreamHandler();
+	Map<Url,Client> clients = new ConcurrentHashMap<>();
+	Map<Url,Boolean> concatenation = new ConcurrentHashMap<>();
+
+	Client getClient(@NonNull final Url creationUrl) throws IOException
+	{
+		val result = clients.get(creationUrl);
+		if (result != null)
+			return result;
+		val client = createClient(creationUrl);
+		val existing = clients.putIfAbsent(creationUrl,client);
+		return existing != null ? existing : client;
+	}
+
+	boolean supportsConcatenation(@NonNull final Url creationUrl) throws IOException
+	{
+		val result = concatenation.get(creationUrl);
+		if (result != null)
+			return result;
+		val supported = getClient(creationUrl).supportsExtension("concatenation");
+		concatenation.put(creationUrl,supported);
+		return supported;
+	}
+
+	private Client createClient(final Url creationUrl) throws IOException
+	{
+		val result = new Client(sslFactoryManager.getSslSocketFactory(),readTimeout,urlStreamHandler,checksumBufferSize);
+		result.setUploadCreationURL(creationUrl.toURL());
+		result.enableResuming(urlStore);
+		result.enableRemoveFingerprintOnSuccess();
+		if (!checksumAlgorithms.isEmpty())
+			result.setChecksumAlgorithm(getChecksumAlgorithm(result).peek(a -> log.info("Using checksum algorithm {} for {}",a.getValue(),creationUrl)).getOrNull());
+		return result;
+	}
+
+	private Option<ChecksumAlgorithm> getChecksumAlgorithm(final Client client) throws IOException
+	{
+		val supported = client.getChecksumAlgorithms();
+		return checksumAlgorithms.find(a -> supported.contains(a.getValue()));
+	}
+
+	public Statistics getStatistics()
+	{
+		return new Statistics(clients.size(),urlStreamHandler.getRequests(),sslFactoryManager.getHandshakes());
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import dev.luin.file.client.core.TaskLease;
+import dev.luin.file.client.core.file.FSFile;
+import dev.luin.file.client.core.file.Url;
+import io.tus.java.client.ProtocolException;
+import io.tus.java.client.TusUpload;
+import io.tus.java.client.TusUploader;
+import io.vavr.collection.Seq;
+import io.vavr.control.Try;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+class ConcatenationUploader
+{
+	@NonNull
+	UploadSegmentDAO uploadSegmentDAO;
+	int segments;
+	long minSegmentSize;
+	int chunkSize;
+	int checksumRetries;
+
+	boolean isSegmented(final FSFile file)
+	{
+		return segments > 1 && file.getLength().getValue() >= minSegmentSize;
+	}
+
+	URL upload(final Client client, final FSFile file, final TusUpload upload, final int requestPayloadSize, final TaskLease lease) throws ProtocolException, IOException
+	{
+		val executor = Executors.newFixedThreadPool(segments,new CustomizableThreadFactory("uploadSegment-"));
+		try
+		{
+			val fileSegments = getSegments(file);
+			lease.setBytesTransferred(fileSegments.map(UploadSegment::getUploadOffset).sum().longValue());
+			val failure = fileSegments
+					.filter(s -> !s.isCompleted())
+					.map(s -> executor.submit(() -> uploadSegment(client,file,s,requestPayloadSize,lease)))
+					.map(f -> Try.of(f::get))
+					.find(Try::isFailure)
+					.map(Try::getCause);
+			if (failure.isDefined())
+				throw rethrow(failure.get());
+			val partialUploads = uploadSegmentDAO.getSegments(file.getId())
+					.map(s -> s.getUploadUrl().toURL())
+					.toJavaList();
+			val result = client.createFinalUpload(partialUploads,upload);
+			uploadSegmentDAO.delete(file.getId());
+			lease.setBytesTransferred(file.getLength().getValue());
+			return result;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private Seq<UploadSegment> getSegments(final FSFile file)
+	{
+		val result = uploadSegmentDAO.getSegments(file.getId());
+		return result.isEmpty() ? uploadSegmentDAO.insert(UploadSegment.of(file.getId(),file.getLength().getValue(),segments)) : result;
+	}
+
+	private UploadSegment uploadSegment(final Client client, final FSFile file, final UploadSegment segment, final int requestPayloadSize, final TaskLease lease) throws ProtocolException, IOException
+	{
+		val upload = new TusUpload();
+		upload.setSize(segment.getLength());
+		try (val input = new FileSegmentInputStream(file.getFile().toPath(),segment.getFirstByte(),segment.getLength()))
+		{
+			upload.setInputStream(input);
+			var current = segment.getUploadUrl() == null ? createPartialUpload(client,segment) : segment;
+			TusUploader uploader;
+			try
+			{
+				uploader = client.beginOrResumeUploadFromURL(upload,current.getUploadUrl().toURL());
+			}
+			catch (ProtocolException e)
+			{
+				if (!isGone(e))
+					throw e;
+				log.warn("Partial upload {} is gone",current.getUploadUrl());
+				current = createPartialUpload(client,segment);
+				uploader = client.beginOrResumeUploadFromURL(upload,current.getUploadUrl().toURL());
+			}
+			lease.progress(uploader.getOffset() - current.getUploadOffset());
+			uploader.setChunkSize(chunkSize);
+			uploader.setRequestPayloadSize(requestPayloadSize);
+			var requestOffset = uploader.getOffset();
+			var resends = 0;
+			while (true)
+			{
+				if (uploader.getOffset() - requestOffset >= requestPayloadSize)
+				{
+					uploadSegmentDAO.update(current.withUploadOffset(uploader.getOffset()));
+					requestOffset = uploader.getOffset();
+					resends = 0;
+				}
+				try
+				{
+					val n = uploader.uploadChunk();
+					if (n == -1)
+					{
+						uploader.finish();
+						break;
+					}
+					lease.progress(n);
+				}
+				catch (ProtocolException e)
+				{
+					if (!Client.isChecksumMismatch(e) || resends++ >= checksumRetries)
+						throw e;
+					log.warn("Checksum mismatch uploading {} at offset {}, resending request",current.getUploadUrl(),requestOffset);
+					uploader = client.beginOrResumeUploadFromURL(upload,current.getUploadUrl().toURL());
+					uploader.setChunkSize(chunkSize);
+					uploader.setRequestPayloadSize(requestPayloadSize);
+					requestOffset = uploader.getOffset();
+				}
+			}
+			val result = current.withUploadOffset(uploader.getOffset());
+			uploadSegmentDAO.update(result);
+			if (!result.isCompleted())
+				throw new IOException("Segment " + result + " is incomplete");
+			return result;
+		}
+	}
+
+	private UploadSegment createPartialUpload(final Client client, final UploadSegment segment) throws ProtocolException, IOException
+	{
+		val result = segment.withUploadUrl(new Url(client.createPartialUpload(segment.getLength()))).withUploadOffset(0L);
+		uploadSegmentDAO.update(result);
+		return result;
+	}
+
+	private boolean isGone(final ProtocolException e)
+	{
+		val connection = e.getCausingConnection();
+		return connection != null && Try.of(connection::getResponseCode).filter(c -> c == 404 || c == 410).isSuccess();
+	}
+
+	private IOException rethrow(final Throwable t) throws ProtocolException, IOException
+	{
+		val cause = t instanceof ExecutionException ? t.getCause() : t;
+		if (cause instanceof ProtocolException)
+			throw (ProtocolException)cause;
+		if (cause instanceof IOException)
+			throw (IOException)cause;
+		if (cause instanceof RuntimeException)
+			throw (RuntimeException)cause;
+		return new IOException(cause);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class FileSegmentInputStream extends InputStream
+{
+	final FileChannel channel;
+	final long end;
+	long position;
+	long mark;
+
+	FileSegmentInputStream(@NonNull final Path path, final long first, final long length) throws IOException
+	{
+		this.channel = FileChannel.open(path,StandardOpenOption.READ);
+		this.end = first + length;
+		this.position = first;
+		this.mark = first;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		val b = new byte[1];
+		return read(b,0,1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException
+	{
+		if (position >= end)
+			return -1;
+		val result = channel.read(ByteBuffer.wrap(b,off,(int)Math.min(len,end - position)),position);
+		if (result > 0)
+			position += result;
+		return result;
+	}
+
+	@Override
+	public long skip(final long n)
+	{
+		val result = Math.max(0,Math.min(n,end - position));
+		position += result;
+		return result;
+	}
+
+	@Override
+	public int available()
+	{
+		return (int)Math.min(Integer.MAX_VALUE,end - position);
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(final int readLimit)
+	{
+		mark = position;
+	}
+
+	@Override
+	public synchronized void reset()
+	{
+		position = mark;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+class KeepAliveURLStreamHandler extends URLStreamHandler
+{
+	private static final String UPLOAD_CONTENT_TYPE = "application/offset+octet-stream";
+
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	static class KeepAliveConnection extends HttpURLConnection
+	{
+		private class ChecksumOutputStream extends DigestOutputStream
+		{
+			ChecksumOutputStream()
+			{
+				super(new DeferredFileOutputStream(checksumBufferSize,"checksum-",".tmp",null),checksumAlgorithm.createDigest());
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				val buffer = (DeferredFileOutputStream)out;
+				buffer.close();
+				try
+				{
+					connection.setRequestProperty("Upload-Checksum",checksumAlgorithm.getValue() + " " + Base64.getEncoder().encodeToString(getMessageDigest().digest()));
+					connection.setFixedLengthStreamingMode(buffer.getByteCount());
+					try (val output = connection.getOutputStream())
+					{
+						buffer.writeTo(output);
+					}
+				}
+				finally
+				{
+					if (!buffer.isInMemory())
+						Files.deleteIfExists(buffer.getFile().toPath());
+				}
+			}
+		}
+
+		@NonNull
+		@Getter
+		final HttpURLConnection connection;
+		boolean responded;
+		ChecksumAlgorithm checksumAlgorithm;
+		int checksumBufferSize;
+
+		KeepAliveConnection(@NonNull final URL url, @NonNull final HttpURLConnection connection)
+		{
+			super(url);
+			this.connection = connection;
+		}
+
+		@Override
+		public void connect() throws IOException
+		{
+			connection.connect();
+		}
+
+		@Override
+		public void disconnect()
+		{
+			if (!responded || !release())
+				connection.disconnect();
+		}
+
+		void setChecksum(ChecksumAlgorithm checksumAlgorithm, int checksumBufferSize)
+		{
+			this.checksumAlgorithm = checksumAlgorithm;
+			this.checksumBufferSize = checksumBufferSize;
+		}
+
+		private boolean isChecksummed()
+		{
+			return checksumAlgorithm != null && UPLOAD_CONTENT_TYPE.equals(connection.getRequestProperty("Content-Type"));
+		}
+
+		private boolean release()
+		{
+			try
+			{
+				connection.getInputStream().close();
+				return true;
+			}
+			catch (IOException e)
+			{
+				return false;
+			}
+		}
+
+		@Override
+		public boolean usingProxy()
+		{
+			return connection.usingProxy();
+		}
+
+		@Override
+		public void setRequestMethod(String method) throws ProtocolException
+		{
+			connection.setRequestMethod(method);
+		}
+
+		@Override
+		public String getRequestMethod()
+		{
+			return connection.getRequestMethod();
+		}
+
+		@Override
+		public void setRequestProperty(String key, String value)
+		{
+			connection.setRequestProperty(key,value);
+		}
+
+		@Override
+		public void addRequestProperty(String key, String value)
+		{
+			connection.addRequestProperty(key,value);
+		}
+
+		@Override
+		public String getRequestProperty(String key)
+		{
+			return connection.getRequestProperty(key);
+		}
+
+		@Override
+		public Map<String,List<String>> getRequestProperties()
+		{
+			return connection.getRequestProperties();
+		}
+
+		@Override
+		public void setDoInput(boolean doInput)
+		{
+			connection.setDoInput(doInput);
+		}
+
+		@Override
+		public boolean getDoInput()
+		{
+			return connection.getDoInput();
+		}
+
+		@Override
+		public void setDoOutput(boolean doOutput)
+		{
+			connection.setDoOutput(doOutput);
+		}
+
+		@Override
+		public boolean getDoOutput()
+		{
+			return connection.getDoOutput();
+		}
+
+		@Override
+		public void setUseCaches(boolean useCaches)
+		{
+			connection.setUseCaches(useCaches);
+		}
+
+		@Override
+		public boolean getUseCaches()
+		{
+			return connection.getUseCaches();
+		}
+
+		@Override
+		public void setInstanceFollowRedirects(boolean followRedirects)
+		{
+			connection.setInstanceFollowRedirects(followRedirects);
+		}
+
+		@Override
+		public boolean getInstanceFollowRedirects()
+		{
+			return connection.getInstanceFollowRedirects();
+		}
+
+		@Override
+		public void setChunkedStreamingMode(int chunkLength)
+		{
+			if (!isChecksummed())
+				connection.setChunkedStreamingMode(chunkLength);
+		}
+
+		@Override
+		public void setFixedLengthStreamingMode(int contentLength)
+		{
+			connection.setFixedLengthStreamingMode(contentLength);
+		}
+
+		@Override
+		public void setFixedLengthStreamingMode(long contentLength)
+		{
+			connection.setFixedLengthStreamingMode(contentLength);
+		}
+
+		@Override
+		public void setConnectTimeout(int timeout)
+		{
+			connection.setConnectTimeout(timeout);
+		}
+
+		@Override
+		public int getConnectTimeout()
+		{
+			return connection.getConnectTimeout();
+		}
+
+		@Override
+		public void setReadTimeout(int timeout)
+		{
+			connection.setReadTimeout(timeout);
+		}
+
+		@Override
+		public int getReadTimeout()
+		{
+			return connection.getReadTimeout();
+		}
+
+		@Override
+		public OutputStream getOutputStream() throws IOException
+		{
+			return isChecksummed() ? new ChecksumOutputStream() : connection.getOutputStream();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException
+		{
+			val result = connection.getInputStream();
+			responded = true;
+			return result;
+		}
+
+		@Override
+		public InputStream getErrorStream()
+		{
+			return connection.getErrorStream();
+		}
+
+		@Override
+		public int getResponseCode() throws IOException
+		{
+			val result = connection.getResponseCode();
+			responded = true;
+			return result;
+		}
+
+		@Override
+		public String getResponseMessage() throws IOException
+		{
+			return connection.getResponseMessage();
+		}
+
+		@Override
+		public String getHeaderField(String name)
+		{
+			return connection.getHeaderField(name);
+		}
+
+		@Override
+		public String getHeaderField(int n)
+		{
+			return connection.getHeaderField(n);
+		}
+
+		@Override
+		public String getHeaderFieldKey(int n)
+		{
+			return connection.getHeaderFieldKey(n);
+		}
+
+		@Override
+		public Map<String,List<String>> getHeaderFields()
+		{
+			return connection.getHeaderFields();
+		}
+
+		@Override
+		public long getHeaderFieldLong(String name, long defaultValue)
+		{
+			return connection.getHeaderFieldLong(name,defaultValue);
+		}
+
+		@Override
+		public int getContentLength()
+		{
+			return connection.getContentLength();
+		}
+
+		@Override
+		public long getContentLengthLong()
+		{
+			return connection.getContentLengthLong();
+		}
+
+		@Override
+		public String getContentType()
+		{
+			return connection.getContentType();
+		}
+
+		@Override
+		public String toString()
+		{
+			return connection.toString();
+		}
+	}
+
+	AtomicLong requests = new AtomicLong();
+
+	@Override
+	protected URLConnection openConnection(URL url) throws IOException
+	{
+		requests.incrementAndGet();
+		return new KeepAliveConnection(url,(HttpURLConnection)new URL(url.toString()).openConnection());
+	}
+
+	long getRequests()
+	{
+		return requests.get();
+	}
+}
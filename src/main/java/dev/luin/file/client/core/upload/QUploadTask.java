@@ -25,6 +25,7 @@ import com.querydsl.core.types.Path;
 
 import com.querydsl.sql.ColumnMetadata;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.Retries;
 import dev.luin.file.client.core.ScheduleTime;
 import dev.luin.file.client.core.file.FileId;
@@ -49,10 +50,16 @@ public class QUploadTask extends com.querydsl.sql.RelationalPathBase<QUploadTask
 
     public static final QUploadTask uploadTask = new QUploadTask("upload_task");
 
+    public final NumberPath<Long> bytesTransferred = createNumber("bytesTransferred", Long.class);
+
     public final SimplePath<Url> creationUrl = createSimple("creationUrl", Url.class);
 
     public final SimplePath<FileId> fileId = createSimple("fileId", FileId.class);
 
+    public final DateTimePath<Instant> leaseTime = createDateTime("lease_time", Instant.class);
+
+    public final SimplePath<NodeId> nodeId = createSimple("nodeId", NodeId.class);
+
     public final SimplePath<Retries> retries = createSimple("retries", Retries.class);
 
     public final SimplePath<ScheduleTime> scheduleTime = createSimple("scheduleTime", ScheduleTime.class);
@@ -93,6 +100,9 @@ public class QUploadTask extends com.querydsl.sql.RelationalPathBase<QUploadTask
     public void addMetadata() {
         addMetadata(creationUrl, ColumnMetadata.named("creation_url").withIndex(2).ofType(Types.VARCHAR).withSize(256).notNull());
         addMetadata(fileId, ColumnMetadata.named("file_id").withIndex(1).ofType(Types.INTEGER).withSize(32).notNull());
+        addMetadata(leaseTime, ColumnMetadata.named("lease_time").withIndex(9).ofType(Types.TIMESTAMP).withSize(26));
+        addMetadata(bytesTransferred, ColumnMetadata.named("bytes_transferred").withIndex(10).ofType(Types.BIGINT).withSize(64).notNull());
+        addMetadata(nodeId, ColumnMetadata.named("node_id").withIndex(8).ofType(Types.VARCHAR).withSize(64));
         addMetadata(retries, ColumnMetadata.named("retries").withIndex(7).ofType(Types.TINYINT).withSize(8).notNull());
         addMetadata(scheduleTime, ColumnMetadata.named("schedule_time").withIndex(6).ofType(Types.TIMESTAMP).withSize(26).notNull());
         addMetadata(status, ColumnMetadata.named("status").withIndex(4).ofType(Types.TINYINT).withSize(8));
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class RequestPayloadSize
+{
+	private static final double MIN_IMPROVEMENT = 1.1;
+
+	final boolean adaptive;
+	final int minSize;
+	int maxSize;
+	int size;
+	double throughput;
+
+	RequestPayloadSize(@NonNull final TusSettings settings)
+	{
+		this.adaptive = settings.isAdaptive();
+		this.minSize = settings.getMinRequestPayloadSize();
+		this.maxSize = settings.getMaxRequestPayloadSize();
+		this.size = adaptive ? Math.max(minSize,Math.min(maxSize,settings.getRequestPayloadSize())) : settings.getRequestPayloadSize();
+	}
+
+	synchronized int get()
+	{
+		return size;
+	}
+
+	synchronized void completed(final long bytes, final long nanos)
+	{
+		if (!adaptive || nanos <= 0)
+			return;
+		val current = (double)bytes / nanos;
+		if (current > throughput * MIN_IMPROVEMENT)
+			size = (int)Math.min(maxSize,2L * size);
+		throughput = current;
+	}
+
+	synchronized void timedOut()
+	{
+		if (!adaptive)
+			return;
+		size = Math.max(minSize,size / 2);
+		maxSize = size;
+		throughput = 0;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import dev.luin.file.client.core.file.FileId;
+import dev.luin.file.client.core.file.Url;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@AllArgsConstructor
+public class ResumableUpload
+{
+	@NonNull
+	FileId fileId;
+	@NonNull
+	Url uploadUrl;
+	@With
+	@NonNull
+	Long uploadOffset;
+}
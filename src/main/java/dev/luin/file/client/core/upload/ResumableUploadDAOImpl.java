@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+
+import dev.luin.file.client.core.NodeId;
+import dev.luin.file.client.core.file.FileId;
+import io.vavr.collection.Map;
+import io.vavr.control.Option;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Transactional(transactionManager = "dataSourceTransactionManager")
+class ResumableUploadDAOImpl implements ResumableUploadDAO
+{
+	@NonNull
+	SQLQueryFactory queryFactory;
+	@NonNull
+	NodeId nodeId;
+	QResumableUpload table = QResumableUpload.resumableUpload;
+	Expression<?>[] resumableUploadColumns = {table.fileId,table.uploadUrl,table.uploadOffset};
+	ConstructorExpression<ResumableUpload> resumableUploadProjection = Projections.constructor(ResumableUpload.class,resumableUploadColumns);
+	QUploadTask uploadTask = QUploadTask.uploadTask;
+
+	@Override
+	public Option<ResumableUpload> findUpload(FileId fileId)
+	{
+		return Option.of(queryFactory.select(resumableUploadProjection)
+				.from(table)
+				.where(table.fileId.eq(fileId))
+				.fetchOne());
+	}
+
+	@Override
+	public ResumableUpload insertUpload(ResumableUpload upload)
+	{
+		deleteUpload(upload.getFileId());
+		queryFactory.insert(table)
+				.set(table.fileId,upload.getFileId())
+				.set(table.uploadUrl,upload.getUploadUrl())
+				.set(table.uploadOffset,upload.getUploadOffset())
+				.execute();
+		return upload;
+	}
+
+	@Override
+	public long updateOffsets(Map<FileId,Long> offsets)
+	{
+		val update = queryFactory.update(table);
+		offsets.forEach((fileId,offset) -> update
+				.set(table.uploadOffset,offset)
+				.where(table.fileId.eq(fileId)
+						.and(SQLExpressions.selectOne()
+								.from(uploadTask)
+								.where(uploadTask.fileId.eq(table.fileId)
+										.and(uploadTask.nodeId.eq(nodeId)))
+								.exists()))
+				.addBatch());
+		return update.isEmpty() ? 0 : update.execute();
+	}
+
+	@Override
+	public long deleteUpload(FileId fileId)
+	{
+		return queryFactory.delete(table)
+				.where(table.fileId.eq(fileId))
+				.execute();
+	}
+}
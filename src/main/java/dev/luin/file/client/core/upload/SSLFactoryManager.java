@@ -26,6 +26,7 @@ import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -110,6 +111,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket();
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -118,6 +120,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(s,consumed,autoClose);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -126,6 +129,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(s,host,port,autoClose);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -146,6 +150,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(host,port);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -154,6 +159,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(host,port);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -162,6 +168,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(host,port,localHost,localPort);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 
@@ -170,6 +177,7 @@ public class SSLFactoryManager
 		{
 			val socket = (SSLSocket)sslSocketFactory.createSocket(address,port,localAddress,localPort);
 			socket.setSSLParameters(sslParameters);
+			socket.addHandshakeCompletedListener(e -> handshakes.incrementAndGet());
 			return socket;
 		}
 	}
@@ -185,6 +193,7 @@ public class SSLFactoryManager
 	String[] enabledCipherSuites;
 	@Getter
 	SSLSocketFactory sslSocketFactory;
+	AtomicLong handshakes = new AtomicLong();
 
 	@Builder
 	public SSLFactoryManager(
@@ -236,6 +245,11 @@ public class SSLFactoryManager
 		return result;
 	}
 
+	public long getHandshakes()
+	{
+		return handshakes.get();
+	}
+
 	public HostnameVerifier getHostnameVerifier()
 	{
 		return verifyHostnames ? HttpsURLConnection.getDefaultHostnameVerifier() : (h,s) -> true;
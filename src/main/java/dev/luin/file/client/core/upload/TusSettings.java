@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import io.vavr.collection.Seq;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+@Value
+@Builder
+public class TusSettings
+{
+	int chunkSize;
+	int requestPayloadSize;
+	boolean adaptive;
+	int minRequestPayloadSize;
+	int maxRequestPayloadSize;
+	int readTimeout;
+	int segments;
+	long minSegmentSize;
+	@NonNull
+	Seq<ChecksumAlgorithm> checksumAlgorithms;
+	int checksumBufferSize;
+	int checksumRetries;
+}
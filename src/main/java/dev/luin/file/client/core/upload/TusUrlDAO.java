@@ -16,51 +16,102 @@
 package dev.luin.file.client.core.upload;
 
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.springframework.transaction.annotation.Transactional;
-
-import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import dev.luin.file.client.core.file.FileId;
-import dev.luin.file.client.core.file.QFile;
 import dev.luin.file.client.core.file.Url;
 import io.tus.java.client.TusURLStore;
+import io.vavr.collection.HashMap;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.NonNull;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @AllArgsConstructor
-@Transactional(transactionManager = "dataSourceTransactionManager")
 public class TusUrlDAO implements TusURLStore
 {
-	SQLQueryFactory queryFactory;
-	QFile table = QFile.file;
+	@NonNull
+	ResumableUploadDAO resumableUploadDAO;
+	Map<FileId,ResumableUpload> uploads = new ConcurrentHashMap<>();
+	Map<FileId,Long> offsets = new ConcurrentHashMap<>();
 
 	@Override
 	public void set(String id, URL url)
 	{
-		queryFactory.update(table)
-				.set(table.url,new Url(url))
-				.where(table.id.eq(new FileId(id)));
+		val fileId = new FileId(id);
+		val upload = resumableUploadDAO.insertUpload(new ResumableUpload(fileId,new Url(url),0L));
+		offsets.remove(fileId);
+		uploads.put(fileId,upload);
 	}
 
 	@Override
 	public URL get(String id)
 	{
-		val result = queryFactory.select(table.url)
-				.from(table)
-				.where(table.id.eq(new FileId(id)))
-				.fetchOne();
-		return result == null ? null : result.toURL();
+		return getUpload(new FileId(id))
+				.map(u -> u.getUploadUrl().toURL())
+				.getOrNull();
 	}
 
 	@Override
 	public void remove(String id)
 	{
-		//TODO: replace?
-//		queryFactory.delete(table)
-//				.where(table.id.eq(new FileId(id)));
+		val fileId = new FileId(id);
+		uploads.remove(fileId);
+		offsets.remove(fileId);
+		resumableUploadDAO.deleteUpload(fileId);
+	}
+
+	public Option<Long> getOffset(@NonNull FileId fileId)
+	{
+		return getUpload(fileId).map(ResumableUpload::getUploadOffset);
+	}
+
+	public void acknowledge(@NonNull FileId fileId, long offset)
+	{
+		if (uploads.computeIfPresent(fileId,(k,u) -> u.withUploadOffset(offset)) != null)
+			offsets.put(fileId,offset);
+	}
+
+	public void release(@NonNull FileId fileId)
+	{
+		uploads.remove(fileId);
+		Option.of(offsets.remove(fileId))
+				.forEach(offset -> resumableUploadDAO.updateOffsets(HashMap.of(fileId,offset)));
+	}
+
+	public void evict(@NonNull FileId fileId)
+	{
+		uploads.remove(fileId);
+		offsets.remove(fileId);
+	}
+
+	@Scheduled(fixedDelayString = "${uploadClient.resume.flushDelay}")
+	public void flush()
+	{
+		val pending = HashMap.ofAll(offsets);
+		if (pending.isEmpty())
+			return;
+		pending.forEach((fileId,offset) -> offsets.remove(fileId,offset));
+		Try.of(() -> resumableUploadDAO.updateOffsets(pending))
+				.onFailure(e ->
+				{
+					log.error("",e);
+					pending.forEach(offsets::putIfAbsent);
+				});
+	}
+
+	private Option<ResumableUpload> getUpload(FileId fileId)
+	{
+		return Option.of(uploads.get(fileId))
+				.orElse(() -> resumableUploadDAO.findUpload(fileId).peek(u -> uploads.putIfAbsent(fileId,u)));
 	}
 }
@@ -16,6 +16,9 @@
 package dev.luin.file.client.core.upload;
 
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
 
 import com.querydsl.sql.SQLQueryFactory;
 
@@ -26,10 +29,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import dev.luin.file.client.core.NodeId;
+import dev.luin.file.client.core.PostgresTaskSignal;
+import dev.luin.file.client.core.TaskSignal;
+import dev.luin.file.client.core.datasource.DataSourceConfig.Location;
 import dev.luin.file.client.core.file.FileSystem;
 import dev.luin.file.client.core.security.KeyStore;
 import dev.luin.file.client.core.security.TrustStore;
-import io.tus.java.client.TusURLStore;
+import io.vavr.collection.List;
 import lombok.AccessLevel;
 import lombok.val;
 import lombok.experimental.FieldDefaults;
@@ -39,6 +46,16 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class UploadClientConfig
 {
+	@Value("${node.id}")
+	String nodeId;
+	@Value("${jdbc.url}")
+	String jdbcUrl;
+	@Value("${jdbc.username}")
+	String username;
+	@Value("${jdbc.password}")
+	String password;
+	@Value("${taskSignal.notify.enabled}")
+	boolean notifyEnabled;
 	@Value("${https.enabledProtocols}")
 	String[] enabledProtocols;
 	@Value("${https.enabledCipherSuites}")
@@ -47,6 +64,38 @@ public class UploadClientConfig
 	boolean verifyHostnames;
 	@Autowired
 	SQLQueryFactory queryFactory;
+	@Value("${uploadTaskHandler.maxConcurrent}")
+	int maxConcurrent;
+	@Value("${uploadTaskHandler.batchSize}")
+	int batchSize;
+	@Value("${uploadTaskHandler.segments}")
+	int segments;
+	@Value("${uploadTaskHandler.minSegmentSize}")
+	long minSegmentSize;
+	@Value("${uploadTask.lease.duration}")
+	long leaseDuration;
+	@Value("${uploadTaskHandler.heartbeat}")
+	long heartbeatDelay;
+	@Value("${uploadTaskHandler.reaper.delay}")
+	long reaperDelay;
+	@Value("${uploadClient.chunkSize}")
+	int chunkSize;
+	@Value("${uploadClient.requestPayloadSize}")
+	int requestPayloadSize;
+	@Value("${uploadClient.adaptive}")
+	boolean adaptive;
+	@Value("${uploadClient.minRequestPayloadSize}")
+	int minRequestPayloadSize;
+	@Value("${uploadClient.maxRequestPayloadSize}")
+	int maxRequestPayloadSize;
+	@Value("${uploadClient.readTimeout}")
+	int readTimeout;
+	@Value("${uploadClient.checksum.algorithms}")
+	String[] checksumAlgorithms;
+	@Value("${uploadClient.checksum.bufferSize}")
+	int checksumBufferSize;
+	@Value("${uploadClient.checksum.maxRetries}")
+	int checksumRetries;
 	@Value("${uploadTask.retry.maxAttempts}")
 	int maxRetries;
 	@Value("${uploadTask.retry.interval}")
@@ -59,7 +108,9 @@ public class UploadClientConfig
 		@Autowired @Qualifier("clientKeyStore") KeyStore clientKeyStore,
 		@Autowired TrustStore trustStore,
 		@Autowired FileSystem fs,
-		@Autowired UploadTaskManager uploadTaskManager) throws GeneralSecurityException
+		@Autowired UploadTaskManager uploadTaskManager,
+		@Autowired UploadSegmentDAO uploadSegmentDAO,
+		@Autowired @Qualifier("uploadTaskSignal") TaskSignal taskSignal) throws GeneralSecurityException
 	{
 		val sslFactoryManager = SSLFactoryManager.builder()
 				.keyStore(clientKeyStore)
@@ -68,24 +119,61 @@ public class UploadClientConfig
 				.enabledCipherSuites(enabledCipherSuites)
 				.verifyHostnames(verifyHostnames)
 				.build();
-		return new UploadTaskHandler(sslFactoryManager,fs,uploadTaskManager,maxRetries);
+		val tusSettings = TusSettings.builder()
+				.chunkSize(chunkSize)
+				.requestPayloadSize(requestPayloadSize)
+				.adaptive(adaptive)
+				.minRequestPayloadSize(minRequestPayloadSize)
+				.maxRequestPayloadSize(maxRequestPayloadSize)
+				.readTimeout(readTimeout)
+				.segments(segments)
+				.minSegmentSize(minSegmentSize)
+				.checksumAlgorithms(List.of(checksumAlgorithms)
+						.filter(a -> !a.trim().isEmpty())
+						.map(a -> ChecksumAlgorithm.of(a).getOrElseThrow(() -> new IllegalArgumentException("Unsupported checksum algorithm " + a))))
+				.checksumBufferSize(checksumBufferSize)
+				.checksumRetries(checksumRetries)
+				.build();
+		val result = new UploadTaskHandler(sslFactoryManager,fs,uploadTaskManager,uploadSegmentDAO,maxRetries,maxConcurrent,batchSize,leaseDuration,heartbeatDelay,reaperDelay,tusSettings);
+		taskSignal.subscribe(result::wakeUp);
+		return result;
 	}
 
 	@Bean
-	public UploadTaskManager uploadTaskManager(@Autowired UploadTaskDAO uploadTaskDAO, @Autowired TusURLStore tusDAO)
+	public UploadTaskManager uploadTaskManager(@Autowired UploadTaskDAO uploadTaskDAO, @Autowired @Qualifier("uploadTaskSignal") TaskSignal taskSignal, @Autowired TusUrlDAO tusDAO)
 	{
-		return new UploadTaskManager(uploadTaskDAO,tusDAO,retryInterval,retryMaxMultiplier);
+		return new UploadTaskManager(uploadTaskDAO,taskSignal,tusDAO,retryInterval,retryMaxMultiplier);
+	}
+
+	@Bean("uploadTaskSignal")
+	public TaskSignal uploadTaskSignal(@Autowired DataSource dataSource)
+	{
+		return notifyEnabled && jdbcUrl.startsWith(Location.POSTGRES.getJdbcUrl())
+				? new PostgresTaskSignal(dataSource,jdbcUrl,username,password,"upload_task",NodeId.of(nodeId))
+				: new TaskSignal();
 	}
 
 	@Bean
 	public UploadTaskDAO uploadTaskDAO()
 	{
-		return new UploadTaskDAOImpl(queryFactory);
+		return new UploadTaskDAOImpl(queryFactory,NodeId.of(nodeId),Duration.ofMillis(leaseDuration));
+	}
+
+	@Bean
+	public TusUrlDAO tusDAO(@Autowired ResumableUploadDAO resumableUploadDAO)
+	{
+		return new TusUrlDAO(resumableUploadDAO);
+	}
+
+	@Bean
+	public ResumableUploadDAO resumableUploadDAO()
+	{
+		return new ResumableUploadDAOImpl(queryFactory,NodeId.of(nodeId));
 	}
 
 	@Bean
-	public TusURLStore tusDAO()
+	public UploadSegmentDAO uploadSegmentDAO()
 	{
-		return new TusUrlDAO(queryFactory);
+		return new UploadSegmentDAOImpl(queryFactory);
 	}
 }
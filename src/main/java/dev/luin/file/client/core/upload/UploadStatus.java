@@ -31,7 +31,7 @@ public class UploadStatus implements ValueObject<UploadStatus.Status>
 	@XmlType(name = "UploadStatusStatus")
 	public enum Status
 	{
-		CREATED, SUCCEEDED, FAILED;
+		CREATED, SUCCEEDED, FAILED, RUNNING;
 	}
 
 	@NonNull
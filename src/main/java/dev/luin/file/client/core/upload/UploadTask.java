@@ -17,6 +17,7 @@ package dev.luin.file.client.core.upload;
 
 import java.time.Instant;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.Retries;
 import dev.luin.file.client.core.ScheduleTime;
 import dev.luin.file.client.core.file.FileId;
@@ -48,14 +49,19 @@ public class UploadTask
 	ScheduleTime scheduleTime;
 	@With
 	Retries retries;
+	@With
+	NodeId nodeId;
+	@With
+	@NonNull
+	Long bytesTransferred;
 
 	static UploadTask of(FileId fileId, Url createUrl)
 	{
 		val now = Instant.now();
-		return new UploadTask(fileId,createUrl,new Timestamp(now),new UploadStatus(Status.CREATED,now),new ScheduleTime(now),new Retries());
+		return new UploadTask(fileId,createUrl,new Timestamp(now),new UploadStatus(Status.CREATED,now),new ScheduleTime(now),new Retries(),null,0L);
 	}
 
-	public UploadTask(FileId fileId, @NonNull Url creationUrl, @NonNull Timestamp timestamp, @NonNull Status status, @NonNull Instant statusTime, @NonNull ScheduleTime scheduleTime, Retries retries)
+	public UploadTask(FileId fileId, @NonNull Url creationUrl, @NonNull Timestamp timestamp, @NonNull Status status, @NonNull Instant statusTime, @NonNull ScheduleTime scheduleTime, Retries retries, NodeId nodeId, @NonNull Long bytesTransferred)
 	{
 		this.fileId = fileId;
 		this.creationUrl = creationUrl;
@@ -63,5 +69,7 @@ public class UploadTask
 		this.status = new UploadStatus(status,statusTime);
 		this.scheduleTime = scheduleTime;
 		this.retries = retries;
+		this.nodeId = nodeId;
+		this.bytesTransferred = bytesTransferred;
 	}
 }
@@ -18,16 +18,21 @@ package dev.luin.file.client.core.upload;
 import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.upload.UploadStatus.Status;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 
 public interface UploadTaskDAO
 {
 	Option<UploadTask> getTask(FileId fileId);
-	Option<UploadTask> getNextTask();
+	Seq<UploadTask> getNextTasks(int limit);
 	Seq<UploadTask> getTasks();
 	Seq<UploadTask> getTasks(List<Status> statuses);
 	UploadTask insert(UploadTask task);
 	long update(UploadTask task);
+	long releaseTasks();
+	Seq<FileId> renewLeases(Seq<FileId> fileIds);
+	long updateBytesTransferred(Map<FileId,Long> bytesTransferred);
+	long releaseExpiredTasks();
 	long delete(FileId fileId);
 }
@@ -15,6 +15,7 @@
  */
 package dev.luin.file.client.core.upload;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import org.springframework.transaction.annotation.Transactional;
@@ -26,14 +27,18 @@ import com.querydsl.core.types.dsl.DateTimePath;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQueryFactory;
 
+import dev.luin.file.client.core.NodeId;
 import dev.luin.file.client.core.file.FileId;
+import dev.luin.file.client.core.querydsl.SkipLocked;
 import dev.luin.file.client.core.upload.UploadStatus.Status;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import lombok.val;
 import lombok.experimental.FieldDefaults;
 
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -43,8 +48,12 @@ class UploadTaskDAOImpl implements UploadTaskDAO
 {
 	@NonNull
 	SQLQueryFactory queryFactory;
+	@NonNull
+	NodeId nodeId;
+	@NonNull
+	Duration leaseDuration;
 	QUploadTask table = QUploadTask.uploadTask;
-	Expression<?>[] uploadTaskColumns = {table.fileId,table.creationUrl,table.timestamp,table.status,table.statusTime,table.scheduleTime,table.retries};
+	Expression<?>[] uploadTaskColumns = {table.fileId,table.creationUrl,table.timestamp,table.status,table.statusTime,table.scheduleTime,table.retries,table.nodeId,table.bytesTransferred};
 	ConstructorExpression<UploadTask> uploadTaskProjection = Projections.constructor(UploadTask.class,uploadTaskColumns);
 	DateTimePath<Instant> scheduleTime = Expressions.dateTimePath(Instant.class,"schedule_time");
 
@@ -58,14 +67,40 @@ class UploadTaskDAOImpl implements UploadTaskDAO
 	}
 
 	@Override
-	public Option<UploadTask> getNextTask()
+	public Seq<UploadTask> getNextTasks(int limit)
 	{
-		return Option.of(queryFactory.select(uploadTaskProjection)
+		val tasks = SkipLocked.fetch(queryFactory.getConfiguration().getTemplates(),queryFactory.select(uploadTaskProjection)
 				.from(table)
 				.where(scheduleTime.before(Instant.now())
 						.and(table.status.eq(Status.CREATED)))
+				.orderBy(scheduleTime.asc()),limit);
+		return tasks.isEmpty() ? tasks : claim(tasks);
+	}
+
+	private Seq<UploadTask> claim(Seq<UploadTask> tasks)
+	{
+		val status = new UploadStatus(Status.RUNNING);
+		val fileIds = tasks.map(UploadTask::getFileId);
+		val claimed = queryFactory.update(table)
+				.set(table.status,status.getValue())
+				.set(table.statusTime,status.getTime())
+				.set(table.nodeId,nodeId)
+				.set(table.leaseTime,status.getTime().plus(leaseDuration))
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.CREATED)))
+				.execute();
+		return claimed == tasks.size() ? tasks.map(t -> t.withStatus(status).withNodeId(nodeId)) : getClaimedTasks(fileIds);
+	}
+
+	private Seq<UploadTask> getClaimedTasks(Seq<FileId> fileIds)
+	{
+		return List.ofAll(queryFactory.select(uploadTaskProjection)
+				.from(table)
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
 				.orderBy(scheduleTime.asc())
-				.fetchFirst());
+				.fetch());
 	}
 
 	@Override
@@ -98,6 +133,7 @@ class UploadTaskDAOImpl implements UploadTaskDAO
 				.set(table.statusTime,task.getStatus().getTime())
 				.set(table.scheduleTime,task.getScheduleTime())
 				.set(table.retries,task.getRetries())
+				.set(table.nodeId,task.getNodeId())
 				.execute();
 		return task;
 	}
@@ -110,7 +146,68 @@ class UploadTaskDAOImpl implements UploadTaskDAO
 				.set(table.statusTime,task.getStatus().getTime())
 				.set(table.scheduleTime,task.getScheduleTime())
 				.set(table.retries,task.getRetries())
-				.where(table.fileId.eq(task.getFileId()))
+				.set(table.nodeId,task.getNodeId())
+				.set(table.bytesTransferred,task.getBytesTransferred())
+				.setNull(table.leaseTime)
+				.where(table.fileId.eq(task.getFileId())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.execute();
+	}
+
+	@Override
+	public Seq<FileId> renewLeases(Seq<FileId> fileIds)
+	{
+		val renewed = queryFactory.update(table)
+				.set(table.leaseTime,Instant.now().plus(leaseDuration))
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.execute();
+		return renewed == fileIds.size() ? fileIds : List.ofAll(queryFactory.select(table.fileId)
+				.from(table)
+				.where(table.fileId.in(fileIds.asJava())
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.fetch());
+	}
+
+	@Override
+	public long updateBytesTransferred(Map<FileId,Long> bytesTransferred)
+	{
+		val update = queryFactory.update(table);
+		bytesTransferred.forEach((fileId,bytes) -> update
+				.set(table.bytesTransferred,bytes)
+				.where(table.fileId.eq(fileId)
+						.and(table.status.eq(Status.RUNNING))
+						.and(table.nodeId.eq(nodeId)))
+				.addBatch());
+		return update.isEmpty() ? 0 : update.execute();
+	}
+
+	@Override
+	public long releaseExpiredTasks()
+	{
+		return queryFactory.update(table)
+				.set(table.status,Status.CREATED)
+				.set(table.statusTime,Instant.now())
+				.setNull(table.nodeId)
+				.setNull(table.leaseTime)
+				.where(table.status.eq(Status.RUNNING)
+						.and(table.leaseTime.before(Instant.now())))
+				.execute();
+	}
+
+	@Override
+	public long releaseTasks()
+	{
+		return queryFactory.update(table)
+				.set(table.status,Status.CREATED)
+				.set(table.statusTime,Instant.now())
+				.setNull(table.nodeId)
+				.setNull(table.leaseTime)
+				.where(table.status.eq(Status.RUNNING)
+						.and(table.nodeId.eq(nodeId)))
 				.execute();
 	}
 
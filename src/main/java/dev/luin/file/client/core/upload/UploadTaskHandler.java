@@ -16,29 +16,45 @@
 package dev.luin.file.client.core.upload;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import dev.luin.file.client.core.LeaseLostException;
+import dev.luin.file.client.core.TaskLease;
 import dev.luin.file.client.core.file.FSFile;
+import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.file.FileSystem;
 import dev.luin.file.client.core.file.Url;
 import io.tus.java.client.ProtocolException;
 import io.tus.java.client.TusExecutor;
 import io.tus.java.client.TusUpload;
 import io.tus.java.client.TusUploader;
+import io.vavr.collection.List;
 import io.vavr.control.Try;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
+import lombok.var;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
-@AllArgsConstructor
 public class UploadTaskHandler
 {
 	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -46,39 +62,127 @@ public class UploadTaskHandler
 	private static class UploadTaskExecutor extends TusExecutor
 	{
 		@NonNull
-		SSLFactoryManager sslFactoryManager;
+		ClientCache clientCache;
 		@NonNull
 		FileSystem fs;
 		@NonNull
 		UploadTaskManager uploadTaskManager;
 		@NonNull
 		UploadTask task;
+		@NonNull
+		TaskLease lease;
+		@NonNull
+		ConcatenationUploader concatenationUploader;
+		@NonNull
+		TusSettings tusSettings;
+		@NonNull
+		RequestPayloadSize requestPayloadSize;
+
+		public UploadTaskExecutor(@NonNull ClientCache clientCache, @NonNull FileSystem fs, @NonNull UploadTaskManager uploadTaskManager, @NonNull UploadTask task, @NonNull TaskLease lease, @NonNull ConcatenationUploader concatenationUploader, @NonNull TusSettings tusSettings)
+		{
+			this(clientCache,fs,uploadTaskManager,task,lease,concatenationUploader,tusSettings,new RequestPayloadSize(tusSettings));
+		}
 
 		@Override
 		protected void makeAttempt() throws ProtocolException, IOException
 		{
 			val file = fs.findFile(task.getFileId()).getOrElseThrow(() -> new IllegalStateException("File " + task.getFileId() + " not found"));
-			val client = createClient();
+			val client = clientCache.getClient(task.getCreationUrl());
 			val upload = createUpload(file);
+			if (concatenationUploader.isSegmented(file) && clientCache.supportsConcatenation(task.getCreationUrl()))
+				uploadSegments(client,file,upload);
+			else
+				upload(client,file,upload);
+		}
+
+		private void uploadSegments(final Client client, final FSFile file, final TusUpload upload) throws ProtocolException, IOException
+		{
+			log.info("Uploading {} in segments",file);
+			val startTime = System.nanoTime();
+			val startOffset = lease.getBytesTransferred();
+			val newFile = file.withUrl(new Url(concatenationUploader.upload(client,file,upload,requestPayloadSize.get(),lease)));
+			fs.updateFile(newFile);
+			log.info("Uploaded {}",newFile);
+			logThroughput(newFile,lease.getBytesTransferred() - startOffset,System.nanoTime() - startTime);
+			log.debug("{}",clientCache.getStatistics());
+		}
+
+		private void upload(final Client client, final FSFile file, final TusUpload upload) throws ProtocolException, IOException
+		{
 			log.info("Uploading {}",file);
 			val uploader = client.resumeOrCreateUpload(upload);
-			do
+			uploadTaskManager.getUploadOffset(task.getFileId())
+					.filter(o -> o > uploader.getOffset())
+					.forEach(o -> log.warn("Upload {} resumed at offset {} before acknowledged offset {}",file.getId(),uploader.getOffset(),o));
+			uploader.setChunkSize(tusSettings.getChunkSize());
+			uploader.setRequestPayloadSize(requestPayloadSize.get());
+			val startTime = System.nanoTime();
+			val startOffset = uploader.getOffset();
+			TusUploader finishedUploader;
+			try
 			{
-				if (log.isDebugEnabled())
-					log.debug("Upload {} at {}%",file,getProgress(upload,uploader));
-			} while (uploader.uploadChunk() > -1);
-			val newFile = file.withUrl(new Url(uploader.getUploadURL()));
+				finishedUploader = upload(client,file,upload,uploader);
+			}
+			catch (SocketTimeoutException e)
+			{
+				requestPayloadSize.timedOut();
+				throw e;
+			}
+			lease.setBytesTransferred(finishedUploader.getOffset());
+			val newFile = file.withUrl(new Url(finishedUploader.getUploadURL()));
 			fs.updateFile(newFile);
-			uploader.finish();
 			log.info("Uploaded {}",newFile);
+			logThroughput(newFile,finishedUploader.getOffset() - startOffset,System.nanoTime() - startTime);
+			log.debug("{}",clientCache.getStatistics());
 		}
 
-		private Client createClient()
+		private TusUploader upload(final Client client, final FSFile file, final TusUpload upload, TusUploader uploader) throws ProtocolException, IOException
 		{
-			val client = new Client(sslFactoryManager.getSslSocketFactory());
-			client.setUploadCreationURL(task.getCreationUrl().toURL());
-			client.enableResuming(uploadTaskManager);
-			return client;
+			var requestTime = System.nanoTime();
+			var requestOffset = uploader.getOffset();
+			var resends = 0;
+			while (true)
+			{
+				lease.progress();
+				lease.setBytesTransferred(uploader.getOffset());
+				if (uploader.getOffset() - requestOffset >= uploader.getRequestPayloadSize())
+				{
+					val now = System.nanoTime();
+					requestPayloadSize.completed(uploader.getOffset() - requestOffset,now - requestTime);
+					uploadTaskManager.acknowledgeUploadOffset(task.getFileId(),uploader.getOffset());
+					uploader.setRequestPayloadSize(requestPayloadSize.get());
+					requestTime = now;
+					requestOffset = uploader.getOffset();
+					resends = 0;
+				}
+				if (log.isDebugEnabled())
+					log.debug("Upload {} at {}%",file,getProgress(upload,uploader));
+				try
+				{
+					if (uploader.uploadChunk() == -1)
+					{
+						uploader.finish();
+						return uploader;
+					}
+				}
+				catch (ProtocolException e)
+				{
+					if (!Client.isChecksumMismatch(e) || resends++ >= tusSettings.getChecksumRetries())
+						throw e;
+					log.warn("Checksum mismatch uploading {} at offset {}, resending request",file.getId(),requestOffset);
+					uploader = client.beginOrResumeUploadFromURL(upload,uploader.getUploadURL());
+					uploader.setChunkSize(tusSettings.getChunkSize());
+					uploader.setRequestPayloadSize(requestPayloadSize.get());
+					requestTime = System.nanoTime();
+					requestOffset = uploader.getOffset();
+				}
+			}
+		}
+
+		private void logThroughput(final FSFile file, final long bytes, final long nanos)
+		{
+			val millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			log.info("Uploaded {} bytes of {} in {} ms ({} bytes/s, request payload size {})",bytes,file.getId(),millis,millis > 0 ? bytes * 1000 / millis : bytes,requestPayloadSize.get());
 		}
 
 		private TusUpload createUpload(final FSFile file)
@@ -106,47 +210,180 @@ public class UploadTaskHandler
 	}
 
 	@NonNull
-	SSLFactoryManager sslFactoryManager;
+	ClientCache clientCache;
 	@NonNull
 	FileSystem fs;
 	@NonNull
 	UploadTaskManager uploadTaskManager;
 	int maxRetries;
+	int maxConcurrent;
+	int batchSize;
+	long leaseDuration;
+	@NonNull
+	ConcatenationUploader concatenationUploader;
+	@NonNull
+	TusSettings tusSettings;
+	ExecutorService executorService;
+	ScheduledThreadPoolExecutor wakeUpService;
+	Object wakeUpLock = new Object();
+	@NonFinal
+	Instant nextWakeUp;
+	@NonFinal
+	ScheduledFuture<?> wakeUp;
+	ScheduledExecutorService leaseService;
+	Map<FileId,TaskLease> runningTasks = new ConcurrentHashMap<>();
+
+	public UploadTaskHandler(@NonNull SSLFactoryManager sslFactoryManager, @NonNull FileSystem fs, @NonNull UploadTaskManager uploadTaskManager, @NonNull UploadSegmentDAO uploadSegmentDAO, int maxRetries, int maxConcurrent, int batchSize, long leaseDuration, long heartbeatDelay, long reaperDelay, @NonNull TusSettings tusSettings)
+	{
+		this.clientCache = new ClientCache(sslFactoryManager,uploadTaskManager,tusSettings.getReadTimeout(),tusSettings.getChecksumAlgorithms(),tusSettings.getChecksumBufferSize());
+		this.fs = fs;
+		this.uploadTaskManager = uploadTaskManager;
+		this.maxRetries = maxRetries;
+		this.maxConcurrent = maxConcurrent;
+		this.batchSize = batchSize;
+		this.leaseDuration = leaseDuration;
+		this.concatenationUploader = new ConcatenationUploader(uploadSegmentDAO,tusSettings.getSegments(),tusSettings.getMinSegmentSize(),tusSettings.getChunkSize(),tusSettings.getChecksumRetries());
+		this.tusSettings = tusSettings;
+		this.executorService = Executors.newFixedThreadPool(maxConcurrent,new CustomizableThreadFactory("uploadTask-"));
+		this.wakeUpService = new ScheduledThreadPoolExecutor(1,new CustomizableThreadFactory("uploadTaskWakeUp-"));
+		wakeUpService.setRemoveOnCancelPolicy(true);
+		this.leaseService = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("uploadTaskLease-"));
+		leaseService.scheduleWithFixedDelay(this::heartbeat,heartbeatDelay,heartbeatDelay,TimeUnit.MILLISECONDS);
+		leaseService.scheduleWithFixedDelay(this::releaseExpiredTasks,reaperDelay,reaperDelay,TimeUnit.MILLISECONDS);
+		uploadTaskManager.releaseTasks();
+	}
 
 	@Scheduled(fixedDelayString = "${uploadTaskHandler.delay}")
-	public void run()
+	public synchronized void run()
 	{
-		val task = uploadTaskManager.getNextTask();
-		task.map(t -> Try.of(() -> handle(t)).onFailure(e -> log.error("",e)));
+		while (!executorService.isShutdown())
+		{
+			val limit = Math.min(batchSize,maxConcurrent - runningTasks.size());
+			if (limit <= 0)
+				break;
+			val tasks = Try.of(() -> uploadTaskManager.getNextTasks(limit))
+					.onFailure(e -> log.error("",e))
+					.getOrElse(List.empty());
+			tasks.forEach(this::submit);
+			if (tasks.size() < limit)
+				break;
+		}
+	}
+
+	public void heartbeat()
+	{
+		val activeTasks = List.ofAll(runningTasks.entrySet())
+				.filter(e -> e.getValue().isActive(leaseDuration))
+				.map(e -> e.getKey());
+		val renewedTasks = Try.of(() -> uploadTaskManager.renewLeases(activeTasks).toSet())
+				.onFailure(e -> log.error("",e))
+				.getOrElse(activeTasks.toSet());
+		runningTasks.forEach((fileId,lease) ->
+		{
+			if (!renewedTasks.contains(fileId))
+				lease.lose();
+		});
+		Try.of(() -> uploadTaskManager.updateBytesTransferred(List.ofAll(runningTasks.entrySet())
+						.filter(e -> renewedTasks.contains(e.getKey()))
+						.toMap(e -> e.getKey(),e -> e.getValue().getBytesTransferred())))
+				.onFailure(e -> log.error("",e));
 	}
 
-	private UploadTask handle(UploadTask task) throws ProtocolException, IOException
+	public void releaseExpiredTasks()
+	{
+		val released = Try.of(() -> uploadTaskManager.releaseExpiredTasks())
+				.onFailure(e -> log.error("",e))
+				.getOrElse(0L);
+		if (released > 0)
+			log.warn("Released {} expired tasks",released);
+	}
+
+	public ClientCache.Statistics getStatistics()
+	{
+		return clientCache.getStatistics();
+	}
+
+	public void wakeUp(Instant scheduleTime)
+	{
+		synchronized (wakeUpLock)
+		{
+			if (wakeUpService.isShutdown() || (wakeUp != null && !wakeUp.isDone() && !scheduleTime.isBefore(nextWakeUp)))
+				return;
+			if (wakeUp != null)
+				wakeUp.cancel(false);
+			nextWakeUp = scheduleTime;
+			wakeUp = wakeUpService.schedule(this::run,Math.max(0,Duration.between(Instant.now(),scheduleTime).toMillis()),TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public void shutdown()
+	{
+		wakeUpService.shutdownNow();
+		leaseService.shutdownNow();
+		executorService.shutdownNow();
+	}
+
+	private void submit(UploadTask task)
+	{
+		val lease = new TaskLease(task.getBytesTransferred());
+		runningTasks.put(task.getFileId(),lease);
+		executorService.execute(() ->
+		{
+			if (lease.start())
+				Try.of(() -> handle(task,lease)).onFailure(e -> log.error("",e));
+			uploadTaskManager.evictUpload(task.getFileId());
+			runningTasks.remove(task.getFileId());
+			run();
+		});
+	}
+
+	private UploadTask handle(UploadTask task, TaskLease lease) throws ProtocolException, IOException
 	{
 		log.info("Start task {}",task);
-		val executor = new UploadTaskExecutor(sslFactoryManager,fs,uploadTaskManager,task);
-		val newTask = handleTask(executor,task);
+		val executor = new UploadTaskExecutor(clientCache,fs,uploadTaskManager,task,lease,concatenationUploader,tusSettings);
+		val newTask = handleTask(executor,task,lease);
 		log.info("Finished task {}\nCreated task {}",task,newTask);
 		return newTask;
 	}
 
-	private UploadTask handleTask(TusExecutor executor, UploadTask task)
+	private UploadTask handleTask(TusExecutor executor, UploadTask task, TaskLease lease)
+	{
+		try
+		{
+			return completeTask(executor,task,lease);
+		}
+		catch (LeaseLostException e)
+		{
+			log.warn("Lease of task {} lost",task);
+			return task;
+		}
+	}
+
+	private UploadTask completeTask(TusExecutor executor, UploadTask task, TaskLease lease)
 	{
 		try
 		{
-			if (!executor.makeAttempts())
+			val succeeded = executor.makeAttempts();
+			val result = task.withBytesTransferred(lease.getBytesTransferred());
+			if (!succeeded)
 			{
 				if (task.getRetries().getValue() < maxRetries)
-					return uploadTaskManager.createNextTask(task);
+					return uploadTaskManager.createNextTask(result);
 				else
-					return uploadTaskManager.createFailedTask(task);
+					return uploadTaskManager.createFailedTask(result);
 			}
 			else
-				return uploadTaskManager.createSucceededTask(task);
+				return uploadTaskManager.createSucceededTask(result);
 		}
 		catch (Exception e)
 		{
+			if (lease.isLost() || e instanceof LeaseLostException)
+			{
+				log.warn("Lease of task {} lost",task);
+				return task;
+			}
 			log.error("",e);
-			return uploadTaskManager.createNextTask(task);
+			return uploadTaskManager.createNextTask(task.withBytesTransferred(lease.getBytesTransferred()));
 		}
 	}
 }
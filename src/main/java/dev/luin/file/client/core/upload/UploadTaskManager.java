@@ -18,11 +18,14 @@ package dev.luin.file.client.core.upload;
 import java.net.URL;
 import java.time.Duration;
 
+import dev.luin.file.client.core.LeaseLostException;
+import dev.luin.file.client.core.TaskSignal;
 import dev.luin.file.client.core.file.FileId;
 import dev.luin.file.client.core.file.Url;
 import dev.luin.file.client.core.upload.UploadStatus.Status;
 import io.tus.java.client.TusURLStore;
 import io.vavr.collection.List;
+import io.vavr.collection.Map;
 import io.vavr.collection.Seq;
 import io.vavr.control.Option;
 import lombok.AccessLevel;
@@ -38,7 +41,9 @@ public class UploadTaskManager implements TusURLStore
 	@NonNull
 	UploadTaskDAO uploadTaskDAO;
 	@NonNull
-	TusURLStore tusDAO;
+	TaskSignal taskSignal;
+	@NonNull
+	TusUrlDAO tusDAO;
 	int retryInterval;
 	int retryMaxMultiplier;
 
@@ -47,9 +52,29 @@ public class UploadTaskManager implements TusURLStore
 		return uploadTaskDAO.getTask(fileId);
 	}
 
-	public Option<UploadTask> getNextTask()
+	public Seq<UploadTask> getNextTasks(int limit)
+	{
+		return uploadTaskDAO.getNextTasks(limit);
+	}
+
+	public long releaseTasks()
+	{
+		return uploadTaskDAO.releaseTasks();
+	}
+
+	public Seq<FileId> renewLeases(Seq<FileId> fileIds)
+	{
+		return fileIds.isEmpty() ? fileIds : uploadTaskDAO.renewLeases(fileIds);
+	}
+
+	public long updateBytesTransferred(Map<FileId,Long> bytesTransferred)
+	{
+		return bytesTransferred.isEmpty() ? 0 : uploadTaskDAO.updateBytesTransferred(bytesTransferred);
+	}
+
+	public long releaseExpiredTasks()
 	{
-		return uploadTaskDAO.getNextTask();
+		return uploadTaskDAO.releaseExpiredTasks();
 	}
 
 	public Seq<UploadTask> getTasks(List<Status> statuses)
@@ -60,38 +85,68 @@ public class UploadTaskManager implements TusURLStore
 	public UploadTask createTask(FileId fileId, Url creationUrl)
 	{
 		val task = UploadTask.of(fileId,creationUrl);
-		return uploadTaskDAO.insert(task);
+		val result = uploadTaskDAO.insert(task);
+		taskSignal.signal(result.getScheduleTime().getValue());
+		return result;
 	}
 
 	public UploadTask createNextTask(UploadTask task)
 	{
 		val retries = task.getRetries().increment();
 		val result = task
+				.withStatus(new UploadStatus(Status.CREATED))
 				.withScheduleTime(task.getScheduleTime().plus(Duration.ofMinutes((retries.getValue() > retryMaxMultiplier ? retryMaxMultiplier : retries.getValue()) * retryInterval)))
-				.withRetries(retries);
-		uploadTaskDAO.update(result);
+				.withRetries(retries)
+				.withNodeId(null);
+		tusDAO.release(task.getFileId());
+		update(result);
+		if (result.getStatus().getValue() == Status.CREATED)
+			taskSignal.signal(result.getScheduleTime().getValue());
 		return result;
 	}
 
 	public UploadTask createSucceededTask(UploadTask task)
 	{
-		val result = task.withStatus(new UploadStatus(Status.SUCCEEDED));
-		uploadTaskDAO.update(result);
+		val result = task.withStatus(new UploadStatus(Status.SUCCEEDED)).withNodeId(null);
+		update(result);
 		return result;
 	}
 
 	public UploadTask createFailedTask(UploadTask task)
 	{
-		val result = task.withStatus(new UploadStatus(Status.FAILED));
-		uploadTaskDAO.update(result);
+		val result = task.withStatus(new UploadStatus(Status.FAILED)).withNodeId(null);
+		tusDAO.release(task.getFileId());
+		update(result);
 		return result;
 	}
 
+	private void update(UploadTask task)
+	{
+		if (uploadTaskDAO.update(task) == 0)
+			throw new LeaseLostException("Lease of task " + task.getFileId() + " lost");
+	}
+
 	public boolean deleteTask(FileId fileId)
 	{
+		tusDAO.remove(fileId.getStringValue());
 		return uploadTaskDAO.delete(fileId) > 0;
 	}
 
+	public Option<Long> getUploadOffset(FileId fileId)
+	{
+		return tusDAO.getOffset(fileId);
+	}
+
+	public void evictUpload(FileId fileId)
+	{
+		tusDAO.evict(fileId);
+	}
+
+	public void acknowledgeUploadOffset(FileId fileId, long offset)
+	{
+		tusDAO.acknowledge(fileId,offset);
+	}
+
 	@Override
 	public void set(String id, URL url)
 	{
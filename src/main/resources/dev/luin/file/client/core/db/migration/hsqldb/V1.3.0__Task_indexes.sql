@@ -0,0 +1,23 @@
+--
+-- Copyright 2020 E.Luinstra
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE INDEX file_url_idx ON file (url);
+
+CREATE INDEX upload_task_schedule_idx ON upload_task (status, schedule_time);
+CREATE INDEX upload_task_lease_idx ON upload_task (status, lease_time);
+
+CREATE INDEX download_task_schedule_idx ON download_task (status, schedule_time);
+CREATE INDEX download_task_lease_idx ON download_task (status, lease_time);
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.datasource;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.querydsl.sql.SQLQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+
+import dev.luin.file.client.core.datasource.DataSourceConfig.Location;
+import dev.luin.file.client.core.querydsl.QueryDSLConfig;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+public class InMemoryDatabase implements AutoCloseable
+{
+	AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+	HikariDataSource dataSource;
+	SQLQueryFactory queryFactory;
+
+	public InMemoryDatabase()
+	{
+		dataSource = createDataSource("jdbc:hsqldb:mem:" + UUID.randomUUID());
+		Flyway.configure()
+				.dataSource(dataSource)
+				.locations(Location.HSQLDB.getLocation())
+				.load()
+				.migrate();
+		context.registerBean(DataSource.class,() -> dataSource);
+		context.register(QueryDSLConfig.class);
+		context.refresh();
+		queryFactory = new SQLQueryFactory(context.getBean(com.querydsl.sql.Configuration.class),dataSource);
+	}
+
+	private static HikariDataSource createDataSource(String jdbcUrl)
+	{
+		val result = new HikariDataSource();
+		result.setDriverClassName("org.hsqldb.jdbc.JDBCDriver");
+		result.setJdbcUrl(jdbcUrl);
+		result.setUsername("sa");
+		result.setPassword("");
+		return result;
+	}
+
+	public void execute(String sql) throws SQLException
+	{
+		try (val connection = dataSource.getConnection(); val statement = connection.createStatement())
+		{
+			statement.execute(sql);
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		context.close();
+		dataSource.close();
+	}
+}
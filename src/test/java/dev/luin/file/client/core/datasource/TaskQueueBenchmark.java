@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.datasource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import org.flywaydb.core.Flyway;
+
+import dev.luin.file.client.core.datasource.DataSourceConfig.Location;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class TaskQueueBenchmark
+{
+	private static final int[] SIZES = {10_000,100_000,1_000_000};
+	private static final int BATCH_SIZE = 1000;
+	private static final int POLL_SIZE = 16;
+	private static final int POLLS = 100;
+
+	@NonNull
+	String jdbcUrl;
+	@NonNull
+	String username;
+	@NonNull
+	String password;
+	@NonNull
+	String location;
+	Random random = new Random(0);
+
+	public static void main(String[] args) throws SQLException
+	{
+		if (args.length == 0)
+			System.out.println("Usage: TaskQueueBenchmark <jdbcUrl> [<username> [<password>]]\nRunning against jdbc:hsqldb:mem:benchmark");
+		val jdbcUrl = args.length > 0 ? args[0] : "jdbc:hsqldb:mem:benchmark";
+		val username = args.length > 1 ? args[1] : "sa";
+		val password = args.length > 2 ? args[2] : "";
+		val location = Location.getLocation(jdbcUrl).orElseThrow(() -> new IllegalArgumentException("Unsupported jdbcUrl " + jdbcUrl));
+		val benchmark = new TaskQueueBenchmark(jdbcUrl,username,password,location);
+		for (val size : SIZES)
+			benchmark.run(size);
+	}
+
+	private void run(int size) throws SQLException
+	{
+		flyway("1.2.0").clean();
+		flyway("1.2.0").migrate();
+		try (val connection = DriverManager.getConnection(jdbcUrl,username,password))
+		{
+			populate(connection,size);
+			val pollBefore = poll(connection);
+			val findBefore = findFile(connection,size);
+			flyway("latest").migrate();
+			val pollAfter = poll(connection);
+			val findAfter = findFile(connection,size);
+			System.out.println(String.format("%,9d rows: poll %6dus -> %6dus, findFile(url) %6dus -> %6dus",size,pollBefore,pollAfter,findBefore,findAfter));
+		}
+	}
+
+	private Flyway flyway(String target)
+	{
+		return Flyway.configure()
+				.dataSource(jdbcUrl,username,password)
+				.locations(location)
+				.target(target)
+				.load();
+	}
+
+	private String fileTable()
+	{
+		return location.equals(Location.HSQLDB.getLocation()) ? "file" : "fs_file";
+	}
+
+	private void populate(Connection connection, int size) throws SQLException
+	{
+		val now = Instant.now();
+		connection.setAutoCommit(false);
+		try (val file = connection.prepareStatement("insert into " + fileTable() + " (id,url,path,time_stamp) values (?,?,?,?)");
+				val task = connection.prepareStatement("insert into download_task (file_id,url,time_stamp,status,status_time,schedule_time,retries) values (?,?,?,?,?,?,0)"))
+		{
+			for (int i = 1; i <= size; i++)
+			{
+				val time = Timestamp.from(now.minus(Duration.ofSeconds(random.nextInt(size))));
+				file.setInt(1,i);
+				file.setString(2,"https://localhost/" + i);
+				file.setString(3,"path/" + i);
+				file.setTimestamp(4,time);
+				file.addBatch();
+				task.setInt(1,i);
+				task.setString(2,"https://localhost/" + i);
+				task.setTimestamp(3,time);
+				task.setInt(4,random.nextInt(100) == 0 ? 0 : 1);
+				task.setTimestamp(5,time);
+				task.setTimestamp(6,time);
+				task.addBatch();
+				if (i % BATCH_SIZE == 0 || i == size)
+				{
+					file.executeBatch();
+					task.executeBatch();
+					connection.commit();
+				}
+			}
+		}
+		connection.setAutoCommit(true);
+	}
+
+	private long poll(Connection connection) throws SQLException
+	{
+		try (val ps = connection.prepareStatement("select file_id from download_task where status = ? and schedule_time < ? order by schedule_time"))
+		{
+			ps.setMaxRows(POLL_SIZE);
+			return measure(() ->
+			{
+				ps.setInt(1,0);
+				ps.setTimestamp(2,Timestamp.from(Instant.now()));
+				try (val rs = ps.executeQuery())
+				{
+					while (rs.next());
+				}
+			});
+		}
+	}
+
+	private long findFile(Connection connection, int size) throws SQLException
+	{
+		try (val ps = connection.prepareStatement("select id from " + fileTable() + " where url = ?"))
+		{
+			return measure(() ->
+			{
+				ps.setString(1,"https://localhost/" + (random.nextInt(size) + 1));
+				try (val rs = ps.executeQuery())
+				{
+					while (rs.next());
+				}
+			});
+		}
+	}
+
+	private long measure(SQLRunnable runnable) throws SQLException
+	{
+		for (int i = 0; i < POLLS / 10; i++)
+			runnable.run();
+		val start = System.nanoTime();
+		for (int i = 0; i < POLLS; i++)
+			runnable.run();
+		return (System.nanoTime() - start) / POLLS / 1000;
+	}
+
+	@FunctionalInterface
+	private interface SQLRunnable
+	{
+		void run() throws SQLException;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.download;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.luin.file.client.core.NodeId;
+import dev.luin.file.client.core.datasource.InMemoryDatabase;
+import dev.luin.file.client.core.download.DownloadStatus.Status;
+import dev.luin.file.client.core.file.FileId;
+import dev.luin.file.client.core.file.Url;
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class DownloadTaskDAOImplTest
+{
+	static final FileId FILE_ID = new FileId(1L);
+
+	InMemoryDatabase database;
+
+	@BeforeEach
+	void setUp() throws SQLException
+	{
+		database = new InMemoryDatabase();
+		database.execute("insert into file (id,path,time_stamp) values (1,'file1',current_timestamp)");
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		database.close();
+	}
+
+	@Test
+	void ownerUpdatesRunningTask()
+	{
+		val dao = createDAO("a",Duration.ofMinutes(1));
+		dao.insert(createTask());
+		val task = dao.getNextTasks(1).head();
+		assertEquals(new NodeId("a"),task.getNodeId());
+		assertEquals(1,dao.update(succeeded(task)));
+		assertEquals(Status.SUCCEEDED,dao.getTask(FILE_ID).get().getStatus().getValue());
+	}
+
+	@Test
+	void otherNodeCannotUpdateRunningTask()
+	{
+		val daoA = createDAO("a",Duration.ofMinutes(1));
+		val daoB = createDAO("b",Duration.ofMinutes(1));
+		daoA.insert(createTask());
+		val task = daoA.getNextTasks(1).head();
+		assertEquals(0,daoB.update(succeeded(task)));
+		assertEquals(Status.RUNNING,daoA.getTask(FILE_ID).get().getStatus().getValue());
+	}
+
+	@Test
+	void taskNotRunningCannotBeUpdated()
+	{
+		val dao = createDAO("a",Duration.ofMinutes(1));
+		val task = dao.insert(createTask());
+		assertEquals(0,dao.update(succeeded(task)));
+		val claimed = dao.getNextTasks(1).head();
+		assertEquals(1,dao.update(succeeded(claimed)));
+		assertEquals(0,dao.update(succeeded(claimed)));
+	}
+
+	@Test
+	void lostLeaseCannotBeUpdated()
+	{
+		val daoA = createDAO("a",Duration.ofMinutes(-1));
+		val daoB = createDAO("b",Duration.ofMinutes(1));
+		daoA.insert(createTask());
+		val task = daoA.getNextTasks(1).head();
+		assertEquals(1,daoB.releaseExpiredTasks());
+		val claimed = daoB.getNextTasks(1).head();
+		assertEquals(new NodeId("b"),claimed.getNodeId());
+		assertEquals(0,daoA.update(succeeded(task)));
+		assertEquals(1,daoB.update(succeeded(claimed)));
+	}
+
+	private DownloadTaskDAOImpl createDAO(String nodeId, Duration leaseDuration)
+	{
+		return new DownloadTaskDAOImpl(database.getQueryFactory(),new NodeId(nodeId),leaseDuration);
+	}
+
+	private static DownloadTask createTask()
+	{
+		return DownloadTask.of(FILE_ID,new Url("http://localhost/1"),Instant.now().minusSeconds(1),null);
+	}
+
+	private static DownloadTask succeeded(DownloadTask task)
+	{
+		return task.withStatus(new DownloadStatus(Status.SUCCEEDED)).withNodeId(null);
+	}
+}
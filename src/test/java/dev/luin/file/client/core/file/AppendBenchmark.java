@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class AppendBenchmark
+{
+	private static final int RUNS = 3;
+	private static final int BLOCK_SIZE = 65536;
+
+	@NonNull
+	Path dir;
+	long size;
+	int bufferSize;
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+			System.out.println("Usage: AppendBenchmark [<sizeInMB> [<bufferSize> [<dir>]]]\nRunning with 1024MB");
+		val size = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+		val bufferSize = args.length > 1 ? Integer.parseInt(args[1]) : 1048576;
+		val dir = args.length > 2 ? Files.createTempDirectory(Paths.get(args[2]),"benchmark") : Files.createTempDirectory("benchmark");
+		val benchmark = new AppendBenchmark(dir,size,bufferSize);
+		for (int i = 0; i < RUNS; i++)
+			for (val appendMode : AppendMode.values())
+				benchmark.run(appendMode);
+		Files.delete(dir);
+	}
+
+	private void run(AppendMode appendMode) throws IOException
+	{
+		val path = Files.createTempFile(dir,"append",".bin");
+		try
+		{
+			val file = new FSFile(null,null,path,null,null,null,null,new Timestamp(),new Length(size));
+			val buffer = ByteBuffer.allocateDirect(bufferSize);
+			val gcCount = getGcCount();
+			val gcTime = getGcTime();
+			val cpuTime = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+			val start = System.nanoTime();
+			val result = appendMode == AppendMode.CHANNEL ? file.append(createInput(),buffer,new Digests()) : file.append(createInput(),new Digests());
+			val time = System.nanoTime() - start;
+			val cpu = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - cpuTime;
+			val gb = size / (1024.0 * 1024 * 1024);
+			System.out.println(String.format("%-7s %,6dMB: %6.2fs wall, %6.2fs cpu/GB, %3d gc/GB, %5dms gc, %s",appendMode,size / 1024 / 1024,time / 1e9,cpu / 1e9 / gb,Math.round((getGcCount() - gcCount) / gb),getGcTime() - gcTime,result.getSha256Checksum()));
+		}
+		finally
+		{
+			Files.delete(path);
+		}
+	}
+
+	private InputStream createInput()
+	{
+		val block = new byte[BLOCK_SIZE];
+		new Random(0).nextBytes(block);
+		return new InputStream()
+		{
+			long position = 0;
+
+			@Override
+			public int read() throws IOException
+			{
+				return position < size ? block[(int)(position++ % BLOCK_SIZE)] & 0xff : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException
+			{
+				if (position >= size)
+					return -1;
+				val offset = (int)(position % BLOCK_SIZE);
+				val n = (int)Math.min(Math.min(len,BLOCK_SIZE - offset),size - position);
+				System.arraycopy(block,offset,b,off,n);
+				position += n;
+				return n;
+			}
+		};
+	}
+
+	private static long getGcCount()
+	{
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long getGcTime()
+	{
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class CachedFSFileDAOTest
+{
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	private static class FSFileDAOStub implements FSFileDAO
+	{
+		final Map<FileId,FSFile> files = new HashMap<>();
+		int finds;
+		Runnable onFind = () -> {};
+
+		@Override
+		public Option<FSFile> findFile(FileId id)
+		{
+			finds++;
+			val result = Option.of(files.get(id));
+			onFind.run();
+			return result;
+		}
+
+		@Override
+		public Option<FSFile> findFile(Url url)
+		{
+			return Option.none();
+		}
+
+		@Override
+		public Seq<FSFile> selectFiles()
+		{
+			return List.ofAll(files.values());
+		}
+
+		@Override
+		public Seq<FSFile> selectUnshardedFiles(long afterId, @NonNull String baseDir, int shardLevels, int limit)
+		{
+			return List.empty();
+		}
+
+		@Override
+		public FSFile insertFile(@NonNull FSFile fsFile)
+		{
+			files.put(fsFile.getId(),fsFile);
+			return fsFile;
+		}
+
+		@Override
+		public long updateFile(@NonNull FSFile fsFile)
+		{
+			return files.replace(fsFile.getId(),fsFile) != null ? 1 : 0;
+		}
+
+		@Override
+		public long updatePath(@NonNull FileId id, @NonNull Path path)
+		{
+			return files.containsKey(id) ? 1 : 0;
+		}
+
+		@Override
+		public long deleteFile(FileId id)
+		{
+			return files.remove(id) != null ? 1 : 0;
+		}
+	}
+
+	FSFileDAOStub fsFileDAO;
+
+	@BeforeEach
+	void setUp()
+	{
+		fsFileDAO = new FSFileDAOStub();
+		fsFileDAO.insertFile(createFile(1));
+		fsFileDAO.insertFile(createFile(2));
+	}
+
+	@Test
+	void findFileIsCached()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,60000);
+		assertEquals(createFile(1),cache.findFile(new FileId(1L)).get());
+		assertEquals(createFile(1),cache.findFile(new FileId(1L)).get());
+		assertEquals(1,fsFileDAO.finds);
+		val statistics = cache.getStatistics();
+		assertEquals(1,statistics.getHits());
+		assertEquals(1,statistics.getMisses());
+		assertEquals(1,statistics.getSize());
+	}
+
+	@Test
+	void missingFileIsNotCached()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,60000);
+		assertTrue(cache.findFile(new FileId(3L)).isEmpty());
+		assertTrue(cache.findFile(new FileId(3L)).isEmpty());
+		assertEquals(2,fsFileDAO.finds);
+	}
+
+	@Test
+	void updateInvalidatesFile()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,60000);
+		cache.findFile(new FileId(1L));
+		val updated = createFile(1).withLength(new Length(10L));
+		assertEquals(1,cache.updateFile(updated));
+		assertEquals(updated,cache.findFile(new FileId(1L)).get());
+		assertEquals(2,fsFileDAO.finds);
+	}
+
+	@Test
+	void deleteInvalidatesFile()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,60000);
+		cache.findFile(new FileId(1L));
+		assertEquals(1,cache.deleteFile(new FileId(1L)));
+		assertTrue(cache.findFile(new FileId(1L)).isEmpty());
+	}
+
+	@Test
+	void expiredFileIsReloaded() throws InterruptedException
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,10);
+		cache.findFile(new FileId(1L));
+		Thread.sleep(50);
+		cache.findFile(new FileId(1L));
+		assertEquals(2,fsFileDAO.finds);
+	}
+
+	@Test
+	void leastRecentlyUsedFileIsEvicted()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,1,60000);
+		cache.findFile(new FileId(1L));
+		cache.findFile(new FileId(2L));
+		cache.findFile(new FileId(1L));
+		assertEquals(3,fsFileDAO.finds);
+		val statistics = cache.getStatistics();
+		assertEquals(2,statistics.getEvictions());
+		assertEquals(1,statistics.getSize());
+	}
+
+	@Test
+	void fileLoadedDuringUpdateIsNotCached()
+	{
+		val cache = new CachedFSFileDAO(fsFileDAO,10,60000);
+		val updated = createFile(1).withLength(new Length(10L));
+		fsFileDAO.onFind = () ->
+		{
+			fsFileDAO.onFind = () -> {};
+			cache.updateFile(updated);
+		};
+		assertEquals(createFile(1),cache.findFile(new FileId(1L)).get());
+		assertEquals(updated,cache.findFile(new FileId(1L)).get());
+		assertEquals(2,fsFileDAO.finds);
+	}
+
+	private static FSFile createFile(long id)
+	{
+		return FSFile.builder()
+				.id(new FileId(id))
+				.path(Paths.get("file" + id))
+				.timestamp(new Timestamp(Instant.EPOCH))
+				.build();
+	}
+}
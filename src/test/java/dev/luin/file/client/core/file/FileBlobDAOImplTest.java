@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import dev.luin.file.client.core.datasource.InMemoryDatabase;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class FileBlobDAOImplTest
+{
+	static final Sha256Checksum CHECKSUM = new Sha256Checksum("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+
+	InMemoryDatabase database;
+	FileBlobDAO fileBlobDAO;
+
+	@BeforeEach
+	void setUp()
+	{
+		database = new InMemoryDatabase();
+		fileBlobDAO = new FileBlobDAOImpl(database.getQueryFactory());
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		database.close();
+	}
+
+	@Test
+	void blobIsInsertedOnce()
+	{
+		assertTrue(fileBlobDAO.insertBlob(CHECKSUM));
+		assertThrows(DataIntegrityViolationException.class,() -> fileBlobDAO.insertBlob(CHECKSUM));
+	}
+
+	@Test
+	void referenceToMissingBlobIsNotAdded()
+	{
+		assertFalse(fileBlobDAO.addReference(CHECKSUM));
+	}
+
+	@Test
+	void lastReferenceRemovesBlob()
+	{
+		fileBlobDAO.insertBlob(CHECKSUM);
+		assertTrue(fileBlobDAO.addReference(CHECKSUM));
+		assertTrue(fileBlobDAO.addReference(CHECKSUM));
+		assertFalse(fileBlobDAO.removeReference(CHECKSUM));
+		assertFalse(fileBlobDAO.removeReference(CHECKSUM));
+		assertTrue(fileBlobDAO.removeReference(CHECKSUM));
+		assertFalse(fileBlobDAO.addReference(CHECKSUM));
+		assertTrue(fileBlobDAO.insertBlob(CHECKSUM));
+	}
+
+	@Test
+	void removedBlobCanNotBeRemovedAgain()
+	{
+		fileBlobDAO.insertBlob(CHECKSUM);
+		assertTrue(fileBlobDAO.removeReference(CHECKSUM));
+		assertFalse(fileBlobDAO.removeReference(CHECKSUM));
+	}
+}
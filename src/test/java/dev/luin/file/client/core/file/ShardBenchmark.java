@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+public class ShardBenchmark
+{
+	private static final int FILENAME_LENGTH = 32;
+	private static final int SAMPLES = 10_000;
+	private static final int[] SHARD_LEVELS = {0,2};
+
+	@NonNull
+	Path dir;
+	@NonNull
+	long[] sizes;
+	Random random = new Random(0);
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+			System.out.println("Usage: ShardBenchmark [<sizes> [<dir>]]\nRunning with 1000000,10000000 files");
+		val sizes = Stream.of((args.length > 0 ? args[0] : "1000000,10000000").split(",")).mapToLong(Long::parseLong).toArray();
+		val dir = args.length > 1 ? Files.createTempDirectory(Paths.get(args[1]),"benchmark") : Files.createTempDirectory("benchmark");
+		val benchmark = new ShardBenchmark(dir,sizes);
+		for (val shardLevels : SHARD_LEVELS)
+			benchmark.run(shardLevels);
+		Files.delete(dir);
+	}
+
+	private void run(int shardLevels) throws IOException
+	{
+		val baseDir = Files.createDirectory(dir.resolve("shards" + shardLevels));
+		val samples = new ArrayList<Path>();
+		try
+		{
+			long count = 0;
+			for (val size : sizes)
+			{
+				for (; count < size - SAMPLES; count++)
+					create(baseDir,shardLevels,samples,count);
+				val start = System.nanoTime();
+				for (; count < size; count++)
+					create(baseDir,shardLevels,samples,count);
+				val createTime = (System.nanoTime() - start) / SAMPLES / 1000;
+				System.out.println(String.format("%d shard levels %,11d files: create %5dus, lookup %5dus",shardLevels,size,createTime,lookup(samples)));
+			}
+		}
+		finally
+		{
+			delete(baseDir);
+		}
+	}
+
+	private void create(Path baseDir, int shardLevels, List<Path> samples, long count) throws IOException
+	{
+		val file = RandomFile.create(baseDir.toString(),FILENAME_LENGTH,shardLevels).get();
+		if (count % Math.max(1,sizes[sizes.length - 1] / SAMPLES) == 0)
+			samples.add(file.getPath());
+	}
+
+	private long lookup(List<Path> samples) throws IOException
+	{
+		val start = System.nanoTime();
+		for (int i = 0; i < SAMPLES; i++)
+			if (!Files.exists(samples.get(random.nextInt(samples.size()))))
+				throw new IOException("File not found");
+		return (System.nanoTime() - start) / SAMPLES / 1000;
+	}
+
+	private static void delete(Path path) throws IOException
+	{
+		try (val paths = Files.walk(path))
+		{
+			for (val p : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(p);
+		}
+	}
+}
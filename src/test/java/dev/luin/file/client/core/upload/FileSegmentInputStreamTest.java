@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class FileSegmentInputStreamTest
+{
+	static final byte[] CONTENT = createContent(100);
+
+	@TempDir
+	Path dir;
+	Path path;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		path = Files.write(dir.resolve("file"),CONTENT);
+	}
+
+	@Test
+	void readsSegmentOnly() throws IOException
+	{
+		try (val input = new FileSegmentInputStream(path,10,20))
+		{
+			assertEquals(20,input.available());
+			assertArrayEquals(Arrays.copyOfRange(CONTENT,10,30),IOUtils.toByteArray(input));
+			assertEquals(-1,input.read());
+			assertEquals(0,input.available());
+		}
+	}
+
+	@Test
+	void readsSingleBytes() throws IOException
+	{
+		try (val input = new FileSegmentInputStream(path,98,2))
+		{
+			assertEquals(98,input.read());
+			assertEquals(99,input.read());
+			assertEquals(-1,input.read());
+		}
+	}
+
+	@Test
+	void skipStopsAtEndOfSegment() throws IOException
+	{
+		try (val input = new FileSegmentInputStream(path,10,20))
+		{
+			assertEquals(5,input.skip(5));
+			assertEquals(15,input.read());
+			assertEquals(14,input.skip(100));
+			assertEquals(-1,input.read());
+			assertEquals(0,input.skip(1));
+		}
+	}
+
+	@Test
+	void resetReturnsToMark() throws IOException
+	{
+		try (val input = new FileSegmentInputStream(path,10,20))
+		{
+			assertTrue(input.markSupported());
+			input.skip(5);
+			input.mark(10);
+			val b = new byte[10];
+			assertEquals(10,input.read(b,0,b.length));
+			input.reset();
+			assertArrayEquals(Arrays.copyOfRange(CONTENT,15,30),IOUtils.toByteArray(input));
+		}
+	}
+
+	@Test
+	void resetWithoutMarkReturnsToStart() throws IOException
+	{
+		try (val input = new FileSegmentInputStream(path,50,10))
+		{
+			IOUtils.toByteArray(input);
+			input.reset();
+			assertArrayEquals(Arrays.copyOfRange(CONTENT,50,60),IOUtils.toByteArray(input));
+		}
+	}
+
+	private static byte[] createContent(int size)
+	{
+		val result = new byte[size];
+		for (int i = 0; i < size; i++)
+			result[i] = (byte)i;
+		return result;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import io.vavr.collection.List;
+import lombok.val;
+
+class RequestPayloadSizeTest
+{
+	@Test
+	void fixedSizeIsNotAdapted()
+	{
+		val size = new RequestPayloadSize(createSettings(false,1000,10,100));
+		assertEquals(1000,size.get());
+		size.completed(1000,1);
+		size.completed(1000,1000);
+		size.timedOut();
+		assertEquals(1000,size.get());
+	}
+
+	@Test
+	void initialSizeIsBounded()
+	{
+		assertEquals(100,new RequestPayloadSize(createSettings(true,1000,10,100)).get());
+		assertEquals(10,new RequestPayloadSize(createSettings(true,1,10,100)).get());
+	}
+
+	@Test
+	void sizeGrowsWhileThroughputImproves()
+	{
+		val size = new RequestPayloadSize(createSettings(true,16,16,64));
+		size.completed(16,100);
+		assertEquals(32,size.get());
+		size.completed(32,100);
+		assertEquals(64,size.get());
+		size.completed(64,100);
+		assertEquals(64,size.get());
+	}
+
+	@Test
+	void sizeIsKeptWithoutImprovement()
+	{
+		val size = new RequestPayloadSize(createSettings(true,16,16,64));
+		size.completed(16,100);
+		size.completed(32,200);
+		assertEquals(32,size.get());
+		size.completed(32,0);
+		assertEquals(32,size.get());
+	}
+
+	@Test
+	void timeoutHalvesAndCapsSize()
+	{
+		val size = new RequestPayloadSize(createSettings(true,64,16,64));
+		size.timedOut();
+		assertEquals(32,size.get());
+		size.completed(32,1);
+		assertEquals(32,size.get());
+		size.timedOut();
+		size.timedOut();
+		size.timedOut();
+		assertEquals(16,size.get());
+	}
+
+	private static TusSettings createSettings(boolean adaptive, int requestPayloadSize, int minRequestPayloadSize, int maxRequestPayloadSize)
+	{
+		return TusSettings.builder()
+				.adaptive(adaptive)
+				.requestPayloadSize(requestPayloadSize)
+				.minRequestPayloadSize(minRequestPayloadSize)
+				.maxRequestPayloadSize(maxRequestPayloadSize)
+				.checksumAlgorithms(List.empty())
+				.build();
+	}
+}
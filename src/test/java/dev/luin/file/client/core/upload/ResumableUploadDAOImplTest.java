@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 E.Luinstra
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.luin.file.client.core.upload;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.luin.file.client.core.NodeId;
+import dev.luin.file.client.core.datasource.InMemoryDatabase;
+import dev.luin.file.client.core.file.FileId;
+import dev.luin.file.client.core.file.Url;
+import io.vavr.collection.HashMap;
+import lombok.AccessLevel;
+import lombok.val;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+class ResumableUploadDAOImplTest
+{
+	static final FileId FILE_ID = new FileId(1L);
+
+	InMemoryDatabase database;
+
+	@BeforeEach
+	void setUp() throws SQLException
+	{
+		database = new InMemoryDatabase();
+		database.execute("insert into file (id,path,time_stamp) values (1,'file1',current_timestamp)");
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		database.close();
+	}
+
+	@Test
+	void ownerUpdatesOffset()
+	{
+		val taskDAO = createTaskDAO("a");
+		val dao = createDAO("a");
+		taskDAO.insert(UploadTask.of(FILE_ID,new Url("http://localhost/upload")));
+		taskDAO.getNextTasks(1);
+		dao.insertUpload(createUpload());
+		assertEquals(1,dao.updateOffsets(HashMap.of(FILE_ID,100L)));
+		assertEquals(100L,dao.findUpload(FILE_ID).get().getUploadOffset().longValue());
+	}
+
+	@Test
+	void otherNodeCannotUpdateOffset()
+	{
+		val taskDAO = createTaskDAO("a");
+		val dao = createDAO("b");
+		taskDAO.insert(UploadTask.of(FILE_ID,new Url("http://localhost/upload")));
+		taskDAO.getNextTasks(1);
+		dao.insertUpload(createUpload());
+		assertEquals(0,dao.updateOffsets(HashMap.of(FILE_ID,100L)));
+		assertEquals(0L,dao.findUpload(FILE_ID).get().getUploadOffset().longValue());
+	}
+
+	@Test
+	void releasedTaskCannotUpdateOffset()
+	{
+		val taskDAO = createTaskDAO("a");
+		val dao = createDAO("a");
+		taskDAO.insert(UploadTask.of(FILE_ID,new Url("http://localhost/upload")));
+		taskDAO.getNextTasks(1);
+		dao.insertUpload(createUpload());
+		taskDAO.releaseTasks();
+		assertEquals(0,dao.updateOffsets(HashMap.of(FILE_ID,100L)));
+		assertEquals(0L,dao.findUpload(FILE_ID).get().getUploadOffset().longValue());
+	}
+
+	private UploadTaskDAOImpl createTaskDAO(String nodeId)
+	{
+		return new UploadTaskDAOImpl(database.getQueryFactory(),new NodeId(nodeId),Duration.ofMinutes(1));
+	}
+
+	private ResumableUploadDAOImpl createDAO(String nodeId)
+	{
+		return new ResumableUploadDAOImpl(database.getQueryFactory(),new NodeId(nodeId));
+	}
+
+	private static ResumableUpload createUpload()
+	{
+		return new ResumableUpload(FILE_ID,new Url("http://localhost/upload/1"),0L);
+	}
+}